@@ -0,0 +1,90 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read side: the cold rebuild of the aggregate from table rows (on the calling thread and on a fork-join pool
+ * with one worker per core), range compression of a single (disease, year) cell, and JSON rendering of the
+ * full bulletin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AggregationBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int records;
+
+    @Param({"50", "500"})
+    public int diseases;
+
+    private List<DiseaseRecord> rows;
+    private List<long[]> cells;
+    private DiseaseAggregate.Snapshot snapshot;
+    private DiseaseBulletinRenderer renderer;
+    private ForkJoinPool aggregationPool;
+    private final StringBuilder rangeBuilder = new StringBuilder(32);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rows = SyntheticDataset.records(SyntheticDataset.diseases(records, diseases, 42L));
+
+        SplittableRandom random = new SplittableRandom(42L);
+        cells = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            long[] weeks = new long[DiseaseAggregate.WEEKS_PER_YEAR];
+            for (int week = 0; week < weeks.length; week++) {
+                weeks[week] = random.nextInt(5) == 0 ? 0 : random.nextInt(1, 500);
+            }
+            cells.add(weeks);
+        }
+
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(rows.stream());
+        snapshot = aggregate.versionedSnapshot();
+        renderer = new DiseaseBulletinRenderer(new ObjectMapper());
+        aggregationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aggregationPool.shutdown();
+    }
+
+    @Benchmark
+    public DiseaseAggregate.Snapshot aggregate() {
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(rows.stream());
+        return aggregate.versionedSnapshot();
+    }
+
+    @Benchmark
+    public DiseaseAggregate.Snapshot aggregateParallel() {
+        DiseaseAggregate aggregate = new DiseaseAggregate(aggregationPool);
+        aggregate.load(rows.stream());
+        return aggregate.versionedSnapshot();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void rangeCompression(Blackhole blackhole) {
+        for (long[] weeks : cells) {
+            blackhole.consume(DiseaseAggregate.getContinuousRangesWithCases(weeks, rangeBuilder));
+        }
+    }
+
+    @Benchmark
+    public DiseaseBulletinRenderer.RenderedBulletin renderJson() {
+        // A new version string every call, so the renderer cannot return its cached rendering
+        return renderer.render("benchmark", new DiseaseAggregate.Snapshot(Long.toString(System.nanoTime()), snapshot.data()));
+    }
+}
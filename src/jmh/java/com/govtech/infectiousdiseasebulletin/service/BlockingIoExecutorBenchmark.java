@@ -0,0 +1,63 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform-thread pools vs virtual threads for work that mostly waits, like page fetches blocked on the upstream
+ * and dashboard requests blocked on JDBC. Each operation is a burst of concurrent tasks that each block for
+ * ioMillis; "platform" is sized like Tomcat's default pool (200 threads).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockingIoExecutorBenchmark {
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "2000", "10000"})
+    public int concurrency;
+
+    @Param({"20"})
+    public int ioMillis;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<Integer>> results = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            int task = i;
+            results.add(executor.submit(() -> {
+                Thread.sleep(ioMillis); // Stand-in for a blocking socket read
+                return task;
+            }));
+        }
+        int sum = 0;
+        for (Future<Integer> result : results) {
+            sum += result.get();
+        }
+        return sum;
+    }
+}
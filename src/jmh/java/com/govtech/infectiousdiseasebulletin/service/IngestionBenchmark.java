@@ -0,0 +1,66 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.data.DatastoreSearchPage;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+import com.govtech.infectiousdiseasebulletin.proxy.DatastoreSearchParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write side, per upstream page: decoding the datastore_search response (full DTO vs streaming), and mapping
+ * the records to entities or to the primitive DiseaseCase used by the bulk paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IngestionBenchmark {
+
+    @Param({"10000", "100000"})
+    public int pageSize;
+
+    @Param({"50"})
+    public int diseases;
+
+    private List<DiseaseDTO.Disease> page;
+    private byte[] pageJson;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DatastoreSearchParser parser = new DatastoreSearchParser();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        page = SyntheticDataset.diseases(pageSize, diseases, 42L);
+        pageJson = SyntheticDataset.datastoreSearchPage(page, pageSize);
+    }
+
+    @Benchmark
+    public DiseaseDTO decodeDto() throws IOException {
+        return objectMapper.readValue(pageJson, DiseaseDTO.class);
+    }
+
+    @Benchmark
+    public DatastoreSearchPage decodeStreaming(Blackhole blackhole) throws IOException {
+        return parser.parse(new ByteArrayInputStream(pageJson), blackhole::consume);
+    }
+
+    @Benchmark
+    public void mapToEntities(Blackhole blackhole) {
+        for (DiseaseDTO.Disease disease : page) {
+            blackhole.consume(DiseaseService.toDiseaseRecord(disease, new DiseaseRecord()));
+        }
+    }
+
+    @Benchmark
+    public void mapToDiseaseCases(Blackhole blackhole) {
+        for (DiseaseDTO.Disease disease : page) {
+            blackhole.consume(DiseaseCase.of(disease));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic data shaped like the upstream weekly bulletin: every disease gets one record per epi week,
+ * year after year from 2012 until the requested number of records is reached. About a fifth of the weeks
+ * have zero cases, so the ranges have gaps like the real data.
+ */
+public final class SyntheticDataset {
+
+    private static final int FIRST_YEAR = 2012;
+    private static final int WEEKS = 52;
+
+    private SyntheticDataset() {
+    }
+
+    public static List<DiseaseDTO.Disease> diseases(int records, int diseases, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<DiseaseDTO.Disease> result = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            int disease = i % diseases;
+            int weekIndex = i / diseases;
+            int year = FIRST_YEAR + weekIndex / WEEKS;
+            int week = weekIndex % WEEKS + 1;
+
+            DiseaseDTO.Disease record = new DiseaseDTO.Disease();
+            record.setId(i + 1L);
+            record.setDisease(diseaseName(disease));
+            record.setEpiWeek(year + "-W" + (week < 10 ? "0" : "") + week);
+            record.setNumberOfCases(Integer.toString(random.nextInt(5) == 0 ? 0 : random.nextInt(1, 500)));
+            result.add(record);
+        }
+        return result;
+    }
+
+    public static List<DiseaseRecord> records(List<DiseaseDTO.Disease> diseases) {
+        List<DiseaseRecord> result = new ArrayList<>(diseases.size());
+        diseases.forEach(disease -> result.add(DiseaseService.toDiseaseRecord(disease, new DiseaseRecord())));
+        return result;
+    }
+
+    // A datastore_search response holding the given records, as the upstream API would send it
+    public static byte[] datastoreSearchPage(List<DiseaseDTO.Disease> diseases, int total) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("resource_id", "synthetic");
+        result.put("fields", List.of(Map.of("type", "int4", "id", "_id"), Map.of("type", "text", "id", "epi_week"),
+                Map.of("type", "text", "id", "disease"), Map.of("type", "numeric", "id", "no._of_cases")));
+        result.put("records", diseases);
+        result.put("_links", Map.of("start", "/api/action/datastore_search", "next", "/api/action/datastore_search?offset=" + diseases.size()));
+        result.put("total", total);
+        result.put("limit", diseases.size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("help", "https://data.gov.sg/api/3/action/help_show?name=datastore_search");
+        response.put("success", true);
+        response.put("result", result);
+        try {
+            return new ObjectMapper().writeValueAsBytes(response);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String diseaseName(int disease) {
+        return "Disease " + disease;
+    }
+}
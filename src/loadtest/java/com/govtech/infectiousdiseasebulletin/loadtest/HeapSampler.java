@@ -0,0 +1,51 @@
+package com.govtech.infectiousdiseasebulletin.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Peak used heap of this JVM, sampled every 50 ms. The application, the upstream stub and the readers share the
+ * JVM; the stub and readers hold no data between requests, so the peak is dominated by the application.
+ */
+public class HeapSampler implements AutoCloseable {
+
+    private static final long INTERVAL_MS = 50;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peak = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public HeapSampler() {
+        thread = new Thread(this::sample, "heap-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void sample() {
+        while (running) {
+            peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            try {
+                Thread.sleep(INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Starts a new measurement from the heap in use right now
+    public void reset() {
+        peak.set(memory.getHeapMemoryUsage().getUsed());
+    }
+
+    public long peakBytes() {
+        return Math.max(peak.get(), memory.getHeapMemoryUsage().getUsed());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,49 @@
+package com.govtech.infectiousdiseasebulletin.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request latencies in 0.1 ms buckets up to 10 s, so a soak run of any length uses the same memory.
+ * Slower requests are counted in the last bucket.
+ */
+public class LatencyHistogram {
+
+    private static final long BUCKET_NANOS = 100_000;
+    private static final int BUCKETS = 100_000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet((int) Math.min(nanos / BUCKET_NANOS, BUCKETS));
+        count.incrementAndGet();
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    // Upper bound of the bucket holding the given percentile, in milliseconds
+    public double percentileMs(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return i == BUCKETS ? maxMs() : (i + 1) * BUCKET_NANOS / 1_000_000.0;
+            }
+        }
+        return maxMs();
+    }
+
+    public double maxMs() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
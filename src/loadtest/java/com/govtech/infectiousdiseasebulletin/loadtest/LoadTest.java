@@ -0,0 +1,267 @@
+package com.govtech.infectiousdiseasebulletin.loadtest;
+
+import com.govtech.infectiousdiseasebulletin.InfectiousDiseaseBulletinApplication;
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseDatasets;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load and soak test: the application runs against a local upstream stub and an embedded PostgreSQL
+ * (or the database given with --spring.datasource.url), and is driven through the same paths as in production.
+ * <ul>
+ *   <li>backfill: full ingest of the stub's dataset into an empty database</li>
+ *   <li>incremental: a daily pull of the records added since</li>
+ *   <li>readers: concurrent bulletin requests over HTTP while another ingest runs; with soak-seconds the readers
+ *   keep going and a pull runs every soak-pull-interval-seconds until the time is up</li>
+ * </ul>
+ * Reports ingest throughput, request throughput, p50/p99 latency and peak heap per scenario. Harness options
+ * start with --loadtest., every other argument goes to the application, e.g. --data.fetch.write-mode=copy.
+ * Exits with 1 when a run is incomplete or misses a threshold.
+ */
+public class LoadTest {
+
+    private static final String PREFIX = "loadtest.";
+
+    private final SimpleCommandLinePropertySource options;
+    private final HeapSampler heapSampler = new HeapSampler();
+    private final List<Result> results = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+
+    private UpstreamStub stub;
+    private DiseaseService diseaseService;
+    private HttpClient httpClient;
+    private String appUrl;
+
+    private LoadTest(String[] args) {
+        this.options = new SimpleCommandLinePropertySource(args);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exitCode = new LoadTest(args).run(args);
+        System.exit(exitCode);
+    }
+
+    private int run(String[] args) throws Exception {
+        long records = option("records", 500_000L);
+        int diseases = (int) option("diseases", 500L);
+        stub = new UpstreamStub(records, diseases, option("seed", 42L), option("upstream-latency-ms", 20L),
+                option("upstream-jitter-ms", 30L), Double.parseDouble(option("upstream-error-rate", "0.01")),
+                (int) option("upstream-error-status", 503L));
+
+        EmbeddedPostgres postgres = null;
+        Map<String, Object> defaults = new HashMap<>();
+        if (!options.containsProperty("spring.datasource.url")) {
+            postgres = EmbeddedPostgres.builder().start();
+            defaults.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+            defaults.put("spring.datasource.username", "postgres");
+            defaults.put("spring.datasource.password", "");
+        }
+        defaults.put("infectious.disease.base-url", stub.baseUrl());
+        defaults.put("infectious.disease.resource-id", "loadtest");
+        defaults.put("data.fetch.cron", "-");
+        defaults.put("data.snapshot.dir", Files.createTempDirectory("loadtest-snapshots").toString());
+        defaults.put("server.port", "0");
+        defaults.put("spring.jpa.hibernate.ddl-auto", "validate");
+        defaults.put("spring.jpa.show-sql", "false");
+        defaults.put("spring.flyway.baseline-on-migrate", "true");
+        defaults.put("spring.flyway.baseline-version", "0");
+        defaults.put("spring.main.banner-mode", "off");
+        defaults.put("logging.level.root", "WARN");
+
+        System.out.println("Upstream stub at " + stub.baseUrl() + " with " + records + " records of " + diseases +
+                " diseases" + (postgres == null ? "" : ", embedded PostgreSQL on port " + postgres.getPort()));
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(InfectiousDiseaseBulletinApplication.class)
+                .properties(defaults)
+                .run(args)) {
+            diseaseService = context.getBean(DiseaseDatasets.class).find(null).orElseThrow();
+            appUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10)).build();
+
+            List<String> scenarios = Arrays.asList(option("scenarios", "backfill,incremental,readers").split(","));
+            if (scenarios.contains("backfill")) {
+                results.add(ingest("backfill", 0));
+            }
+            if (scenarios.contains("incremental")) {
+                results.add(ingest("incremental", option("daily-records", 5_000L)));
+            }
+            if (scenarios.contains("readers")) {
+                results.add(readers());
+            }
+        } finally {
+            stub.close();
+            heapSampler.close();
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+
+        report();
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    // Grows the stub by the given number of records and pulls them, timed from the first page to the last commit
+    private Result ingest(String scenario, long newRecords) {
+        stub.grow(newRecords);
+        heapSampler.reset();
+        long startNanos = System.nanoTime();
+        long ingested = pull();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        Result result = new Result(scenario, ingested, seconds, null, 0, heapSampler.peakBytes());
+        long minRate = option("min-ingest-records-per-second", 0L);
+        if ("backfill".equals(scenario) && minRate > 0 && result.recordsPerSecond() < minRate) {
+            failures.add(scenario + ": " + Math.round(result.recordsPerSecond()) + " records/s is below " + minRate);
+        }
+        return result;
+    }
+
+    private long pull() {
+        diseaseService.fetchAllLatestDiseaseData();
+        IngestionStatus status = diseaseService.getIngestionStatus();
+        if (status.currentOffset() == null || status.currentOffset() < stub.total()) {
+            failures.add("ingest stopped at offset " + status.currentOffset() + " of " + stub.total() +
+                    (status.lastError() == null ? "" : ": " + status.lastError()));
+        }
+        return status.recordsIngested();
+    }
+
+    private Result readers() throws Exception {
+        int readers = (int) option("readers", 16L);
+        long minSeconds = option("reader-min-seconds", 10L);
+        long soakSeconds = option("soak-seconds", 0L);
+        long pullIntervalNanos = Duration.ofSeconds(option("soak-pull-interval-seconds", 60L)).toNanos();
+        List<String> paths = Arrays.asList(option("reader-paths",
+                "/api/disease/get,/api/disease/get?disease=Disease%201&fromYear=2015&toYear=2020").split(","));
+        awaitReady(paths.get(0));
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            int first = i;
+            threads.add(Thread.ofPlatform().name("reader-" + i).start(() -> read(paths, first, stop, latencies, errors)));
+        }
+
+        heapSampler.reset();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + Duration.ofSeconds(Math.max(minSeconds, soakSeconds)).toNanos();
+        stub.grow(option("reader-ingest-records", 50_000L));
+        long ingested = pull();
+        long nextPull = System.nanoTime() + pullIntervalNanos;
+        while (System.nanoTime() < deadline) {
+            if (soakSeconds > 0 && System.nanoTime() >= nextPull) {
+                stub.grow(option("daily-records", 5_000L));
+                ingested += pull();
+                nextPull = System.nanoTime() + pullIntervalNanos;
+            }
+            Thread.sleep(100);
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        Result result = new Result(soakSeconds > 0 ? "soak" : "readers", ingested, seconds, latencies, errors.get(),
+                heapSampler.peakBytes());
+        long maxP99 = option("max-p99-ms", 0L);
+        if (maxP99 > 0 && latencies.percentileMs(99) > maxP99) {
+            failures.add(result.scenario() + ": p99 of " + latencies.percentileMs(99) + " ms is above " + maxP99 + " ms");
+        }
+        if (errors.get() > 0) {
+            failures.add(result.scenario() + ": " + errors.get() + " failed requests");
+        }
+        return result;
+    }
+
+    private void read(List<String> paths, int first, AtomicBoolean stop, LatencyHistogram latencies, AtomicLong errors) {
+        for (long i = first; !stop.get(); i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(appUrl + paths.get((int) (i % paths.size()))))
+                    .timeout(Duration.ofSeconds(30)).build();
+            long startNanos = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                latencies.record(System.nanoTime() - startNanos);
+                if (response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                latencies.record(System.nanoTime() - startNanos);
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    // The first request after startup may have to wait for the aggregate to be built
+    private void awaitReady(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(appUrl + path)).timeout(Duration.ofMinutes(5)).build();
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                throw new IllegalStateException("Application not reachable at " + appUrl + ": " + e.getMessage(), e);
+            }
+        }).get();
+    }
+
+    private void report() {
+        System.out.println();
+        System.out.println(String.format("%-12s %10s %9s %10s %10s %9s %9s %9s %8s %12s", "scenario", "records",
+                "seconds", "records/s", "requests", "req/s", "p50 ms", "p99 ms", "errors", "peak heap MB"));
+        for (Result result : results) {
+            LatencyHistogram latencies = result.latencies();
+            System.out.println(String.format("%-12s %10d %9.1f %10.0f %10s %9s %9s %9s %8s %12d", result.scenario(),
+                    result.records(), result.seconds(), result.recordsPerSecond(),
+                    latencies == null ? "-" : Long.toString(latencies.count()),
+                    latencies == null ? "-" : String.format("%.0f", latencies.count() / result.seconds()),
+                    latencies == null ? "-" : String.format("%.1f", latencies.percentileMs(50)),
+                    latencies == null ? "-" : String.format("%.1f", latencies.percentileMs(99)),
+                    latencies == null ? "-" : Long.toString(result.errors()),
+                    result.peakHeapBytes() / (1024 * 1024)));
+        }
+        System.out.println(String.format("Upstream: %d requests, %d injected errors, %d records served. Max heap %d MB.",
+                stub.requests(), stub.errors(), stub.recordsServed(), Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+        failures.forEach(failure -> System.out.println("FAILED " + failure));
+    }
+
+    private long option(String name, long defaultValue) {
+        return Long.parseLong(option(name, Long.toString(defaultValue)));
+    }
+
+    private String option(String name, String defaultValue) {
+        String value = options.getProperty(PREFIX + name);
+        return value == null ? defaultValue : value;
+    }
+
+    private record Result(String scenario, long records, double seconds, LatencyHistogram latencies, long errors,
+                          long peakHeapBytes) {
+
+        private double recordsPerSecond() {
+            return seconds > 0 ? records / seconds : 0;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.govtech.infectiousdiseasebulletin.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the data.gov.sg datastore_search API. Records are derived from their offset, so any page can
+ * be served without holding the dataset in memory: every disease gets one record per epi week, year after year
+ * from 2012, and about a fifth of the weeks have zero cases. The dataset grows with grow(), like the real one does
+ * week by week. Latency and errors are injected per request.
+ */
+public class UpstreamStub implements AutoCloseable {
+
+    private static final int FIRST_YEAR = 2012;
+    private static final int WEEKS = 52;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int diseases;
+    private final long seed;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final int errorStatus;
+
+    private final AtomicLong total;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong recordsServed = new AtomicLong();
+
+    public UpstreamStub(long records, int diseases, long seed, long latencyMs, long jitterMs, double errorRate,
+                        int errorStatus) throws IOException {
+        this.total = new AtomicLong(records);
+        this.diseases = diseases;
+        this.seed = seed;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/api/action/datastore_search", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    // Appends records after the current end, e.g. a week of new data
+    public long grow(long records) {
+        return total.addAndGet(records);
+    }
+
+    public long total() {
+        return total.get();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    public long recordsServed() {
+        return recordsServed.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                send(exchange, errorStatus, "{\"success\": false}");
+                return;
+            }
+
+            Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+            long offset = Long.parseLong(params.getOrDefault("offset", "0"));
+            long limit = Long.parseLong(params.getOrDefault("limit", "100"));
+            long end = Math.min(offset + limit, total.get());
+
+            StringBuilder body = new StringBuilder((int) Math.max(0, end - offset) * 96 + 256);
+            body.append("{\"help\": \"stub\", \"success\": true, \"result\": {\"resource_id\": \"")
+                    .append(params.getOrDefault("resource_id", "")).append("\", \"records\": [");
+            for (long i = offset; i < end; i++) {
+                if (i > offset) {
+                    body.append(", ");
+                }
+                appendRecord(body, i);
+            }
+            body.append("], \"total\": ").append(total.get()).append(", \"limit\": ").append(limit).append("}}");
+            recordsServed.addAndGet(Math.max(0, end - offset));
+            send(exchange, 200, body.toString());
+        }
+    }
+
+    private void appendRecord(StringBuilder body, long index) {
+        long disease = index % diseases;
+        long weekIndex = index / diseases;
+        long year = FIRST_YEAR + weekIndex / WEEKS;
+        long week = weekIndex % WEEKS + 1;
+        long hash = mix(seed ^ index);
+        long cases = Math.floorMod(hash, 5) == 0 ? 0 : 1 + Math.floorMod(hash >>> 8, 499);
+        body.append("{\"_id\": ").append(index + 1)
+                .append(", \"epi_week\": \"").append(year).append(week < 10 ? "-W0" : "-W").append(week)
+                .append("\", \"disease\": \"Disease ").append(disease)
+                .append("\", \"no._of_cases\": \"").append(cases).append("\"}");
+    }
+
+    // SplitMix64 finalizer, a record's case count only depends on the seed and its offset
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> params(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
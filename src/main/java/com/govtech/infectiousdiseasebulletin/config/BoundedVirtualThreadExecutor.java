@@ -0,0 +1,74 @@
+package com.govtech.infectiousdiseasebulletin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a new virtual thread per task, and at most maxConcurrent tasks run at once. The others wait for a permit,
+ * which costs a parked virtual thread instead of a pooled platform one. Permits are taken on the tasks' own threads,
+ * so waiting tasks start in no particular order.
+ */
+public class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedVirtualThreadExecutor.class);
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    public BoundedVirtualThreadExecutor(int maxConcurrent, ThreadFactory virtualThreadFactory) {
+        this.delegate = Executors.newThreadPerTaskExecutor(virtualThreadFactory);
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // shutdownNow interrupts the tasks still waiting, they never run
+                LOG.warn("Abandoned task " + command + " waiting for a permit, the executor is shutting down");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,37 @@
+package com.govtech.infectiousdiseasebulletin.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableConfigurationProperties(DatasetProperties.class)
+public class DatasetConfig {
+
+    // Ingest runs of all datasets share this pool, so at most this many pull from upstream and write at once
+    // and a burst of schedules firing together queues instead of starving the database
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService datasetIngestExecutor(@Value("${data.fetch.max-concurrent-datasets:2}") int maxConcurrent,
+                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("data.fetch.max-concurrent-datasets must be at least 1");
+        }
+        // Virtual threads are not pooled, so their concurrency is capped with permits instead of a pool size
+        if (virtualThreads) {
+            return new BoundedVirtualThreadExecutor(maxConcurrent, Thread.ofVirtual().name("dataset-ingest-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(maxConcurrent, Thread.ofPlatform().name("dataset-ingest-", 0).daemon(true).factory());
+    }
+
+    // Full rebuilds of every dataset compute their ranges on this pool, one task per disease
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool aggregationPool(@Value("${data.aggregate.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+}
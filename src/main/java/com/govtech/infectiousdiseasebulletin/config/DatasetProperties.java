@@ -0,0 +1,26 @@
+package com.govtech.infectiousdiseasebulletin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Datasets served by this instance, e.g. data.datasets.weekly.resource-id and data.datasets.weekly.cron.
+ * When none are configured, infectious.disease.resource-id and data.fetch.cron form the "default" dataset.
+ */
+@Data
+@ConfigurationProperties(prefix = "data")
+public class DatasetProperties {
+
+    private Map<String, Dataset> datasets = new LinkedHashMap<>();
+
+    @Data
+    public static class Dataset {
+        private String resourceId;
+        // Falls back to data.fetch.cron
+        private String cron;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.govtech.infectiousdiseasebulletin.config;
+
+import com.govtech.infectiousdiseasebulletin.repository.PostgresSharedCacheTier;
+import com.govtech.infectiousdiseasebulletin.service.InProcessSharedCacheTier;
+import com.govtech.infectiousdiseasebulletin.service.SharedCacheTier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class SharedCacheConfig {
+
+    // Replicas share aggregate snapshots and reload messages through the database they already have in common
+    @Bean
+    @ConditionalOnProperty(name = "data.cache.shared.type", havingValue = "postgres")
+    public SharedCacheTier postgresSharedCacheTier(DataSource dataSource) {
+        return new PostgresSharedCacheTier(dataSource);
+    }
+
+    // Single node: nothing to share with, the tier stays inside this JVM
+    @Bean
+    @ConditionalOnProperty(name = "data.cache.shared.type", havingValue = "in-process", matchIfMissing = true)
+    public SharedCacheTier inProcessSharedCacheTier() {
+        return new InProcessSharedCacheTier();
+    }
+
+}
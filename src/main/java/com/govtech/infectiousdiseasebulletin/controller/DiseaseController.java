@@ -1,43 +1,243 @@
 package com.govtech.infectiousdiseasebulletin.controller;
 
+import com.govtech.infectiousdiseasebulletin.data.BulletinCursor;
+import com.govtech.infectiousdiseasebulletin.data.BulletinPage;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
+import com.govtech.infectiousdiseasebulletin.data.RollupRow;
+import com.govtech.infectiousdiseasebulletin.data.YearlyTrend;
+import com.govtech.infectiousdiseasebulletin.model.RollupGranularity;
+import com.govtech.infectiousdiseasebulletin.service.BulletinUpdates;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseBulletinRenderer;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseBulletinRenderer.RenderedBulletin;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseDatasets;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseRollupService;
 import com.govtech.infectiousdiseasebulletin.service.DiseaseService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/disease")
 public class DiseaseController {
 
-    private final DiseaseService diseaseService;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    private final DiseaseDatasets diseaseDatasets;
+    private final DiseaseBulletinRenderer diseaseBulletinRenderer;
+    private final DiseaseRollupService diseaseRollupService;
+    private final BulletinUpdates bulletinUpdates;
 
     @Autowired
-    public DiseaseController(DiseaseService diseaseService) {
-        this.diseaseService = diseaseService;
+    public DiseaseController(DiseaseDatasets diseaseDatasets, DiseaseBulletinRenderer diseaseBulletinRenderer,
+                             DiseaseRollupService diseaseRollupService, BulletinUpdates bulletinUpdates) {
+        this.diseaseDatasets = diseaseDatasets;
+        this.diseaseBulletinRenderer = diseaseBulletinRenderer;
+        this.diseaseRollupService = diseaseRollupService;
+        this.bulletinUpdates = bulletinUpdates;
     }
 
 
+    // Every endpoint takes an optional dataset parameter, without it the default dataset is used
+    @GetMapping("/datasets")
+    public ResponseEntity<List<DiseaseDataset>> getDatasets() {
+        return ResponseEntity.ok(diseaseDatasets.getDatasets());
+    }
+
     @PostMapping("/pull-async")
-    public ResponseEntity fetchDiseaseData() {
-        diseaseService.fetchAllLatestDiseaseDataAsync();
+    public ResponseEntity fetchDiseaseData(@RequestParam(required = false) String dataset) {
+        diseaseDatasets.fetchAsync(service(dataset), "on-demand");
         return ResponseEntity.ok(null);
     }
 
     @PostMapping("/invalidate-cache")
-    public ResponseEntity invalidateDiseaseCache() {
-        diseaseService.invalidateDiseaseData();
+    public ResponseEntity invalidateDiseaseCache(@RequestParam(required = false) String dataset) {
+        service(dataset).invalidateDiseaseData();
         return ResponseEntity.ok(null);
     }
 
+    @GetMapping("/ingestion-status")
+    public ResponseEntity<IngestionStatus> getIngestionStatus(@RequestParam(required = false) String dataset) {
+        return ResponseEntity.ok(service(dataset).getIngestionStatus());
+    }
+
     @GetMapping("/get")
-    public ResponseEntity<Map<String, Map<String, List<String>>>> getDisease() {
-        return ResponseEntity.ok(diseaseService.getProcessedDiseaseData());
+    public ResponseEntity<?> getDisease(
+            @RequestParam(required = false) String dataset,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear,
+            @RequestParam(required = false) Integer fromWeek,
+            @RequestParam(required = false) Integer toWeek,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        DiseaseService diseaseService = service(dataset);
+        DiseaseQuery query = toQuery(disease, fromYear, toYear, fromWeek, toWeek);
+        if (!query.isUnfiltered()) {
+            return ResponseEntity.ok(diseaseService.getProcessedDiseaseData(query));
+        }
+
+        // The full bulletin is served from bytes rendered once per data version. Spring answers 304 by itself
+        // when If-None-Match matches the ETag, so an unchanged bulletin costs a header check.
+        RenderedBulletin bulletin = diseaseBulletinRenderer.render(diseaseService.getDataset().name(),
+                diseaseService.getProcessedDiseaseSnapshot());
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(gzip ? bulletin.gzipETag() : bulletin.eTag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(bulletin.gzip());
+        }
+        return response.body(bulletin.json());
+    }
+
+    // gzip, or *, listed with a q-value above 0. An explicit gzip;q=0 refuses it even when * is accepted.
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    // The bulletin as NDJSON, one {"disease", "year", "ranges"} object per line, written from the snapshot as it
+    // is read instead of being built in memory first
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamDisease(
+            @RequestParam(required = false) String dataset,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear,
+            @RequestParam(required = false) Integer fromWeek,
+            @RequestParam(required = false) Integer toWeek) {
+        DiseaseService diseaseService = service(dataset);
+        DiseaseQuery query = toQuery(disease, fromYear, toYear, fromWeek, toWeek);
+        StreamingResponseBody body = out -> {
+            try (Stream<BulletinRow> rows = diseaseService.streamBulletinRows(query)) {
+                diseaseBulletinRenderer.writeNdjson(rows, out);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    // Server-sent events: "version" on connect, then a "delta" with the changed (disease, year) entries whenever
+    // the data changes, or "reload" when the whole bulletin did
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(required = false) String dataset) {
+        SseEmitter emitter = bulletinUpdates.subscribe(datasetName(dataset));
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers");
+        }
+        return emitter;
+    }
+
+    // Keyset pagination over (disease, year): pass the returned next cursor to get the following page
+    @GetMapping("/rows")
+    public ResponseEntity<BulletinPage> getDiseaseRows(
+            @RequestParam(required = false) String dataset,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear,
+            @RequestParam(required = false) Integer fromWeek,
+            @RequestParam(required = false) Integer toWeek,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        DiseaseQuery query = toQuery(disease, fromYear, toYear, fromWeek, toWeek);
+        BulletinCursor after;
+        try {
+            after = cursor == null ? null : BulletinCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.ok(service(dataset).getBulletinPage(query, after, limit));
+    }
+
+    // Pre-aggregated case counts per week, 4-week period, 13-week quarter or year
+    @GetMapping("/rollups")
+    public ResponseEntity<List<RollupRow>> getRollups(
+            @RequestParam(required = false) String dataset,
+            @RequestParam(defaultValue = "year") String granularity,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear) {
+        RollupGranularity rollupGranularity;
+        try {
+            rollupGranularity = RollupGranularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown granularity: " + granularity);
+        }
+        DiseaseQuery query = toQuery(disease, fromYear, toYear, null, null);
+        return ResponseEntity.ok(diseaseRollupService.getRollups(datasetName(dataset), rollupGranularity, query));
+    }
+
+    @GetMapping("/trend")
+    public ResponseEntity<List<YearlyTrend>> getYearlyTrend(
+            @RequestParam(required = false) String dataset,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear) {
+        return ResponseEntity.ok(diseaseRollupService.getYearlyTrend(datasetName(dataset),
+                toQuery(disease, fromYear, toYear, null, null)));
+    }
+
+    private DiseaseService service(String dataset) {
+        return diseaseDatasets.find(dataset)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown dataset: " + dataset));
+    }
+
+    private String datasetName(String dataset) {
+        return service(dataset).getDataset().name();
+    }
+
+    private static DiseaseQuery toQuery(String disease, Integer fromYear, Integer toYear, Integer fromWeek, Integer toWeek) {
+        try {
+            return new DiseaseQuery(disease, fromYear, toYear, fromWeek, toWeek);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
 }
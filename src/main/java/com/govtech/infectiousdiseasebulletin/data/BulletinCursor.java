@@ -0,0 +1,35 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the bulletin: rows strictly after (disease, year) in disease, year order.
+ * Handed to clients as an opaque URL-safe string.
+ */
+public record BulletinCursor(String disease, String year) {
+
+    public static BulletinCursor after(BulletinRow row) {
+        return new BulletinCursor(row.disease(), row.year());
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((year + ":" + disease).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BulletinCursor decode(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        // The year is fixed-width digits, so the first ':' always ends it; disease names may contain ':'
+        int separator = decoded.indexOf(':');
+        if (separator != 4 || !decoded.substring(0, separator).chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new BulletinCursor(decoded.substring(separator + 1), decoded.substring(0, separator));
+    }
+}
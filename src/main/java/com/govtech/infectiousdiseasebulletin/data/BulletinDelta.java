@@ -0,0 +1,12 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The (disease, year) entries whose ranges changed between two data versions, in the shape of the bulletin.
+ * A null list means the entry was removed.
+ */
+public record BulletinDelta(String dataset, String previousVersion, String version,
+                            Map<String, Map<String, List<String>>> changes) {
+}
@@ -0,0 +1,10 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import java.util.List;
+
+/**
+ * A page of bulletin rows. next is the cursor for the following page, null on the last page; version is the data
+ * version the page was read from, so a client can tell when the data changed between pages.
+ */
+public record BulletinPage(String version, List<BulletinRow> rows, String next) {
+}
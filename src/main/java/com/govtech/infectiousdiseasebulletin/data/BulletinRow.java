@@ -0,0 +1,9 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import java.util.List;
+
+/**
+ * One (disease, year) entry of the bulletin, the unit of the streamed and paginated responses.
+ */
+public record BulletinRow(String disease, String year, List<String> ranges) {
+}
@@ -0,0 +1,7 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+/**
+ * Envelope of a streamed datastore_search response, the records themselves are handed out while parsing.
+ */
+public record DatastoreSearchPage(boolean success, int total, int records) {
+}
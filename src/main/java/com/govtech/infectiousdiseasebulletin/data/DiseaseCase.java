@@ -0,0 +1,37 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import io.micrometer.common.util.StringUtils;
+
+/**
+ * One weekly case count, with the upstream "2022-W01" epi_week already split into primitives.
+ * A year or week of 0 means the upstream record had no epi_week. An epi_week that does not parse, or whose
+ * week is outside 1..53, is rejected the same way the streaming parser rejects it.
+ */
+public record DiseaseCase(long id, String disease, int epiYear, int epiWeek, long numberOfCases) {
+
+    public static DiseaseCase of(DiseaseDTO.Disease disease) {
+        int epiYear = 0;
+        int epiWeek = 0;
+        if (!StringUtils.isEmpty(disease.getEpiWeek())) {
+            String epiWeekText = disease.getEpiWeek();
+            int dash = epiWeekText.indexOf('-');
+            if (dash < 0 || dash + 1 >= epiWeekText.length() || epiWeekText.charAt(dash + 1) != 'W') {
+                throw new IllegalArgumentException("Unexpected epi_week: " + epiWeekText);
+            }
+            // Integer.parseInt rejects years beyond the int range
+            epiYear = Integer.parseInt(epiWeekText, 0, dash, 10);
+            epiWeek = Integer.parseInt(epiWeekText, dash + 2, epiWeekText.length(), 10); // Convert "W01" to 1, "W08" to 8, etc.
+            if (epiWeek < DiseaseQuery.FIRST_WEEK || epiWeek > DiseaseQuery.LAST_WEEK) {
+                throw new IllegalArgumentException("Expected an epi week between " + DiseaseQuery.FIRST_WEEK + " and " +
+                        DiseaseQuery.LAST_WEEK + " but was " + epiWeekText);
+            }
+        }
+        // Long.parseLong rejects counts beyond the long range
+        return new DiseaseCase(disease.getId(), disease.getDisease(), epiYear, epiWeek,
+                Long.parseLong(disease.getNumberOfCases()));
+    }
+
+    public boolean hasEpiWeek() {
+        return epiYear > 0 && epiWeek > 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+/**
+ * One upstream resource mirrored by this service. The name partitions the records and rollups tables and
+ * selects the bulletin in the API; the cron is the dataset's own ingest schedule.
+ */
+public record DiseaseDataset(String name, String resourceId, String cron) {
+
+    public static final String DEFAULT_NAME = "default";
+
+    public DiseaseDataset {
+        if (name == null || !name.matches("[a-z0-9][a-z0-9-]{0,63}")) {
+            throw new IllegalArgumentException("Dataset name must be lowercase letters, digits and '-': " + name);
+        }
+        if (resourceId == null || resourceId.isBlank()) {
+            throw new IllegalArgumentException("Dataset " + name + " has no resource-id");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+/**
+ * Filter for the processed bulletin. Null fields are unbounded; weeks are epi week numbers (1-53), inclusive.
+ */
+public record DiseaseQuery(String disease, Integer fromYear, Integer toYear, Integer fromWeek, Integer toWeek) {
+
+    public static final int FIRST_WEEK = 1;
+    public static final int LAST_WEEK = 53;
+
+    public DiseaseQuery {
+        if (fromWeek != null && (fromWeek < FIRST_WEEK || fromWeek > LAST_WEEK)) {
+            throw new IllegalArgumentException("fromWeek must be between " + FIRST_WEEK + " and " + LAST_WEEK);
+        }
+        if (toWeek != null && (toWeek < FIRST_WEEK || toWeek > LAST_WEEK)) {
+            throw new IllegalArgumentException("toWeek must be between " + FIRST_WEEK + " and " + LAST_WEEK);
+        }
+        if (fromYear != null && toYear != null && fromYear > toYear) {
+            throw new IllegalArgumentException("fromYear must not be after toYear");
+        }
+        if (fromWeek != null && toWeek != null && fromWeek > toWeek) {
+            throw new IllegalArgumentException("fromWeek must not be after toWeek");
+        }
+    }
+
+    public boolean isUnfiltered() {
+        return disease == null && fromYear == null && toYear == null && coversAllWeeks();
+    }
+
+    public boolean coversAllWeeks() {
+        return firstWeek() == FIRST_WEEK && lastWeek() == LAST_WEEK;
+    }
+
+    public int firstYear() {
+        return fromYear == null ? Integer.MIN_VALUE : fromYear;
+    }
+
+    public int lastYear() {
+        return toYear == null ? Integer.MAX_VALUE : toYear;
+    }
+
+    public int firstWeek() {
+        return fromWeek == null ? FIRST_WEEK : fromWeek;
+    }
+
+    public int lastWeek() {
+        return toWeek == null ? LAST_WEEK : toWeek;
+    }
+}
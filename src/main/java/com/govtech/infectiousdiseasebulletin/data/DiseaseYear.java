@@ -0,0 +1,7 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+/**
+ * A (disease, epi year) cell touched by an ingested batch.
+ */
+public record DiseaseYear(String disease, int epiYear) {
+}
@@ -0,0 +1,11 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+import java.time.Instant;
+
+/**
+ * Progress of the current data fetch, or of the last one when none is running.
+ */
+public record IngestionStatus(boolean running, Long currentOffset, long pagesCompleted, long recordsIngested,
+                              double recordsPerSecond, Instant startedAt, Instant finishedAt,
+                              String lastError, Instant lastErrorAt) {
+}
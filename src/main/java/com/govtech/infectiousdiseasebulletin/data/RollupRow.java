@@ -0,0 +1,4 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+public record RollupRow(String disease, int epiYear, String granularity, int bucket, long totalCases, int weeksWithCases) {
+}
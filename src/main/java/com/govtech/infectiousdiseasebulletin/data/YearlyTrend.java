@@ -0,0 +1,7 @@
+package com.govtech.infectiousdiseasebulletin.data;
+
+/**
+ * Yearly total of one disease with the change against the previous year, null when that year has no data.
+ */
+public record YearlyTrend(String disease, int epiYear, long totalCases, Long change, Double percentChange) {
+}
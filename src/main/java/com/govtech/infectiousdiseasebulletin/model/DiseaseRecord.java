@@ -1,9 +1,13 @@
 package com.govtech.infectiousdiseasebulletin.model;
 
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
+// Range-partitioned by epi_year and keyed on (dataset, epi_year, disease_id), see
+// db/migration/V2__partition_disease_records_by_year.sql. Upstream _ids are only unique within a dataset.
 @Table(name = "disease_records")
 @Data
 public class DiseaseRecord {
@@ -12,14 +16,20 @@ public class DiseaseRecord {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Rows written before datasets existed belong to the default dataset
+    @ColumnDefault("'" + DiseaseDataset.DEFAULT_NAME + "'")
+    @Column(name = "dataset", length = 64, nullable = false)
+    private String dataset;
+
     @Column(name = "disease_id")
     private Long diseaseId;
 
-    @Column(name = "epi_week")
-    private String epiWeek;
+    // Year and week are 0 when the upstream record has no epi week
+    @Column(name = "epi_week", nullable = false)
+    private Integer epiWeek;
 
-    @Column(name = "epi_year")
-    private String epiYear;
+    @Column(name = "epi_year", nullable = false)
+    private Integer epiYear;
 
     @Column(name = "disease")
     private String disease;
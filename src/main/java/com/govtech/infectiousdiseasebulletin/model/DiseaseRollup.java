@@ -0,0 +1,44 @@
+package com.govtech.infectiousdiseasebulletin.model;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+
+@Entity
+@Table(name = "disease_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_disease_rollups_dataset_bucket", columnNames = {"dataset", "disease", "epi_year", "granularity", "bucket"})
+}, indexes = {
+        @Index(name = "idx_disease_rollups_dataset_granularity_year", columnList = "dataset, granularity, epi_year")
+})
+@Data
+public class DiseaseRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ColumnDefault("'" + DiseaseDataset.DEFAULT_NAME + "'")
+    @Column(name = "dataset", length = 64, nullable = false)
+    private String dataset;
+
+    @Column(name = "disease")
+    private String disease;
+
+    @Column(name = "epi_year")
+    private Integer epiYear;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 16)
+    private RollupGranularity granularity;
+
+    // Week, period or quarter number within the year; 1 for YEAR
+    @Column(name = "bucket")
+    private Integer bucket;
+
+    @Column(name = "total_cases")
+    private Long totalCases;
+
+    @Column(name = "weeks_with_cases")
+    private Integer weeksWithCases;
+}
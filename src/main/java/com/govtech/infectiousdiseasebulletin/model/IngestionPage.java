@@ -0,0 +1,34 @@
+package com.govtech.infectiousdiseasebulletin.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "ingestion_pages", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ingestion_pages_resource_offset", columnNames = {"resource_id", "page_offset"})
+})
+@Data
+public class IngestionPage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "resource_id")
+    private String resourceId;
+
+    @Column(name = "page_offset")
+    private Long pageOffset;
+
+    @Column(name = "record_count")
+    private Integer recordCount;
+
+    // CRC32 over the page's records, tells whether the upstream changed a page that was already ingested
+    @Column(name = "checksum")
+    private Long checksum;
+
+    @Column(name = "committed_at")
+    private Instant committedAt;
+}
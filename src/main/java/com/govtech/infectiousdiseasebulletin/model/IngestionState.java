@@ -0,0 +1,29 @@
+package com.govtech.infectiousdiseasebulletin.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Watermark of the ingest for one upstream resource, written in the same transaction as the page it covers.
+ */
+@Entity
+@Table(name = "ingestion_state")
+@Data
+public class IngestionState {
+
+    @Id
+    @Column(name = "resource_id")
+    private String resourceId;
+
+    // Upstream offset the next page starts at
+    @Column(name = "last_offset")
+    private Long lastOffset;
+
+    @Column(name = "upstream_total")
+    private Long upstreamTotal;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,12 @@
+package com.govtech.infectiousdiseasebulletin.model;
+
+/**
+ * Epi-week buckets of the rollup table. PERIOD is the 4-week epidemiological month (13 per year) and QUARTER
+ * is 13 weeks (4 per year); week 53 is folded into the last period and quarter.
+ */
+public enum RollupGranularity {
+    WEEK,
+    PERIOD,
+    QUARTER,
+    YEAR
+}
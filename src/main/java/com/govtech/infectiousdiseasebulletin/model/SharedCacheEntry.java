@@ -0,0 +1,26 @@
+package com.govtech.infectiousdiseasebulletin.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Entry of the Postgres-backed shared cache tier. The table is created by the V1 migration and only mapped so
+ * Hibernate validates it against the schema; it is read and written through JDBC by PostgresSharedCacheTier.
+ */
+@Entity
+@Table(name = "shared_cache")
+@Data
+public class SharedCacheEntry {
+
+    @Id
+    @Column(name = "cache_key")
+    private String cacheKey;
+
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
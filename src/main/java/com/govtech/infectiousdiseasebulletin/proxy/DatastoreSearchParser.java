@@ -0,0 +1,159 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.govtech.infectiousdiseasebulletin.data.DatastoreSearchPage;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming decoder for the datastore_search response. Records are emitted one by one as they are read,
+ * so a page never exists in memory as a whole; fields, help and _links are skipped without being decoded.
+ */
+public class DatastoreSearchParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public DatastoreSearchPage parse(InputStream body, Consumer<DiseaseCase> sink) throws IOException {
+        boolean success = false;
+        int total = 0;
+        int records = 0;
+
+        // A page only holds a few hundred distinct disease names, share one instance per name
+        Map<String, String> diseaseNames = new HashMap<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "success" -> success = value == JsonToken.VALUE_TRUE;
+                    case "result" -> {
+                        expect(parser, value, JsonToken.START_OBJECT);
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String resultField = parser.currentName();
+                            JsonToken resultValue = parser.nextToken();
+                            if ("records".equals(resultField)) {
+                                expect(parser, resultValue, JsonToken.START_ARRAY);
+                                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                    sink.accept(parseRecord(parser, diseaseNames));
+                                    records++;
+                                }
+                            } else if ("total".equals(resultField)) {
+                                total = parser.getValueAsInt();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new DatastoreSearchPage(success, total, records);
+    }
+
+    private DiseaseCase parseRecord(JsonParser parser, Map<String, String> diseaseNames) throws IOException {
+        long id = 0;
+        String disease = null;
+        int epiYear = 0;
+        int epiWeek = 0;
+        long numberOfCases = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "_id" -> id = parser.getValueAsLong();
+                case "disease" -> {
+                    if (value != JsonToken.VALUE_NULL) {
+                        disease = diseaseNames.computeIfAbsent(parser.getText(), name -> name);
+                    }
+                }
+                case "epi_week" -> {
+                    // "2022-W01", read straight from the parser's buffer
+                    if (value == JsonToken.VALUE_STRING && parser.getTextLength() > 0) {
+                        char[] text = parser.getTextCharacters();
+                        int offset = parser.getTextOffset();
+                        int end = offset + parser.getTextLength();
+                        int dash = indexOf(text, offset, end, '-');
+                        if (dash < 0 || dash + 1 >= end || text[dash + 1] != 'W') {
+                            throw new JsonParseException(parser, "Unexpected epi_week: " + parser.getText());
+                        }
+                        epiYear = parseInt(parser, text, offset, dash, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                        epiWeek = parseInt(parser, text, dash + 2, end, DiseaseQuery.FIRST_WEEK, DiseaseQuery.LAST_WEEK);
+                    }
+                }
+                case "no._of_cases" -> {
+                    if (value == JsonToken.VALUE_NUMBER_INT) {
+                        numberOfCases = parser.getLongValue();
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        int offset = parser.getTextOffset();
+                        numberOfCases = parseLong(parser, parser.getTextCharacters(), offset, offset + parser.getTextLength());
+                    } else {
+                        throw new JsonParseException(parser, "Unexpected no._of_cases: " + parser.getText());
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new DiseaseCase(id, disease, epiYear, epiWeek, numberOfCases);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static int indexOf(char[] text, int from, int end, char c) {
+        for (int i = from; i < end; i++) {
+            if (text[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseInt(JsonParser parser, char[] text, int from, int end, int min, int max)
+            throws JsonParseException {
+        long value = parseLong(parser, text, from, end);
+        if (value < min || value > max) {
+            throw new JsonParseException(parser, "Expected a number between " + min + " and " + max + " but was " +
+                    new String(text, from, end - from));
+        }
+        return (int) value;
+    }
+
+    // Accumulates negatively, so Long.MIN_VALUE parses and anything beyond the long range is rejected
+    private static long parseLong(JsonParser parser, char[] text, int from, int end) throws JsonParseException {
+        boolean negative = from < end && text[from] == '-';
+        int first = negative ? from + 1 : from;
+        if (first >= end) {
+            throw new JsonParseException(parser, "Expected a number but was " + new String(text, from, end - from));
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (int i = first; i < end; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                throw new JsonParseException(parser, "Expected a number but was " + new String(text, from, end - from));
+            }
+            int digit = c - '0';
+            if (value < (limit + digit) / 10) {
+                throw new JsonParseException(parser, "Number out of range: " + new String(text, from, end - from));
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+}
@@ -1,6 +1,7 @@
 package com.govtech.infectiousdiseasebulletin.proxy;
 
 import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -8,10 +9,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 import java.util.Map;
 import java.util.Optional;
 
-@FeignClient(name = "diseaseProxy", url ="https://data.gov.sg", contextId = "diseaseProxy")
+@FeignClient(name = "diseaseProxy", url = "${infectious.disease.base-url:https://data.gov.sg}", contextId = "diseaseProxy",
+        configuration = DiseaseProxyConfiguration.class)
 public interface DiseaseProxy {
 
     @GetMapping(value="/api/action/datastore_search")
     public Optional<DiseaseDTO> fetchDiseaseRecord(@RequestParam Map<String, Object> queryParams);
 
+    // Undecoded response, to be read with DatastoreSearchParser. The caller must close it.
+    @GetMapping(value="/api/action/datastore_search")
+    public Response streamDiseaseRecord(@RequestParam Map<String, Object> queryParams);
+
 }
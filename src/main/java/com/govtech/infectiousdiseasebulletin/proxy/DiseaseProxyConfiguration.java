@@ -0,0 +1,64 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import feign.Client;
+import feign.Request;
+import feign.Retryer;
+import feign.hc5.ApacheHttp5Client;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+/**
+ * Client configuration for DiseaseProxy only, so it is deliberately not a @Configuration picked up by scanning.
+ * <p>
+ * Requests go through the pooled Apache HttpClient 5 set up by Spring Cloud OpenFeign (keep-alive connections,
+ * gzip/deflate responses decompressed transparently), wrapped with the circuit breaker and adaptive throttle.
+ */
+public class DiseaseProxyConfiguration {
+
+    @Value("${data.fetch.client.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${data.fetch.client.initial-backoff-ms:500}")
+    private long initialBackoffMillis;
+
+    @Value("${data.fetch.client.max-backoff-ms:30000}")
+    private long maxBackoffMillis;
+
+    @Value("${data.fetch.client.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${data.fetch.client.max-spacing-ms:10000}")
+    private long maxSpacingMillis;
+
+    @Value("${data.fetch.client.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${data.fetch.client.circuit-breaker.open-duration-ms:60000}")
+    private long openDurationMillis;
+
+    @Value("${data.fetch.client.connect-timeout-ms:10000}")
+    private long connectTimeoutMillis;
+
+    @Value("${data.fetch.client.read-timeout-ms:60000}")
+    private long readTimeoutMillis;
+
+    @Bean
+    public Client diseaseProxyClient(CloseableHttpClient httpClient5) {
+        return new ResilientClient(new ApacheHttp5Client(httpClient5),
+                new UpstreamThrottle(maxConcurrency, maxSpacingMillis),
+                new UpstreamCircuitBreaker(failureThreshold, openDurationMillis));
+    }
+
+    @Bean
+    public Retryer diseaseProxyRetryer() {
+        return new JitteredBackoffRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+
+    @Bean
+    public Request.Options diseaseProxyOptions() {
+        return new Request.Options(Duration.ofMillis(connectTimeoutMillis), Duration.ofMillis(readTimeoutMillis), true);
+    }
+}
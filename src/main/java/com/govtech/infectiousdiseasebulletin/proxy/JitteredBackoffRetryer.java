@@ -0,0 +1,58 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import feign.RetryableException;
+import feign.Retryer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: attempt n waits a random time up to min(maxBackoff, initialBackoff * 2^n),
+ * so concurrent page fetches that failed together do not retry together. A Retry-After from the upstream is honoured.
+ */
+public class JitteredBackoffRetryer implements Retryer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JitteredBackoffRetryer.class);
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private int attempt = 1;
+
+    public JitteredBackoffRetryer(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (attempt >= maxAttempts) {
+            throw e;
+        }
+
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+        long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (e.retryAfter() != null) {
+            backoff = Math.min(maxBackoffMillis, Math.max(backoff, e.retryAfter() - System.currentTimeMillis()));
+        }
+        LOG.info("Retrying upstream request (attempt " + (attempt + 1) + " of " + maxAttempts + ") in " + backoff +
+                " ms: " + e.getMessage());
+        attempt++;
+
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    // Feign clones the retryer for every call, so each page gets its own attempt count
+    @Override
+    public Retryer clone() {
+        return new JitteredBackoffRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+}
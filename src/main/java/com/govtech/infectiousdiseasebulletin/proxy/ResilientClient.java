@@ -0,0 +1,82 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Feign client decorator that guards the upstream with a circuit breaker and an adaptive throttle. 429 and 5xx
+ * responses are turned into a RetryableException, so the Retryer backs off and retries them like I/O errors,
+ * including for methods that return the raw Response.
+ */
+public class ResilientClient implements Client {
+
+    private final Client delegate;
+    private final UpstreamThrottle throttle;
+    private final UpstreamCircuitBreaker circuitBreaker;
+
+    public ResilientClient(Client delegate, UpstreamThrottle throttle, UpstreamCircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.throttle = throttle;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        // The slot is taken first: a breaker that went HALF_OPEN for a caller still waiting on the throttle would
+        // never see its trial call settled
+        throttle.acquire();
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (RuntimeException e) {
+            throttle.cancel();
+            throw e;
+        }
+
+        Response response;
+        try {
+            response = delegate.execute(request, options);
+        } catch (IOException | RuntimeException e) {
+            // Connection failures and timeouts count as overload too
+            throttle.release(true, 0);
+            circuitBreaker.onFailure();
+            throw e;
+        }
+
+        int status = response.status();
+        if (status == 429 || status >= 500) {
+            Long retryAfter = retryAfter(response);
+            throttle.release(true, retryAfter == null ? 0 : retryAfter - System.currentTimeMillis());
+            // A 429 means the upstream is reachable, only busy, so it settles a trial call like a success
+            if (status >= 500) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            response.close();
+            throw new RetryableException(status, "Upstream responded with status " + status + ".",
+                    request.httpMethod(), retryAfter, request);
+        }
+
+        throttle.release(false, 0);
+        circuitBreaker.onSuccess();
+        return response;
+    }
+
+    // Retry-After in seconds, as epoch millis; the HTTP-date form is not used by the upstream
+    private static Long retryAfter(Response response) {
+        Collection<String> values = response.headers().get("Retry-After");
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        try {
+            return System.currentTimeMillis() + Long.parseLong(values.iterator().next().trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
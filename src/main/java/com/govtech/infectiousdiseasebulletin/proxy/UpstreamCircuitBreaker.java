@@ -0,0 +1,67 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Opens after a number of consecutive upstream failures and fails calls fast until the open duration has passed.
+ * Then a single trial call is let through: if it succeeds the breaker closes, otherwise it opens again.
+ */
+public class UpstreamCircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+
+    public UpstreamCircuitBreaker(int failureThreshold, long openDurationMillis) {
+        this(failureThreshold, openDurationMillis, System::currentTimeMillis);
+    }
+
+    UpstreamCircuitBreaker(int failureThreshold, long openDurationMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+    }
+
+    public synchronized void acquirePermission() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMillis) {
+            state = State.HALF_OPEN;
+            return; // This caller makes the trial call
+        }
+        throw new UpstreamUnavailableException("Upstream circuit breaker is " + state + ", not calling the upstream.");
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            LOG.info("Upstream recovered, closing the circuit breaker.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            LOG.error("Opening the upstream circuit breaker after " + consecutiveFailures + " consecutive failures.");
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,118 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit on concurrent upstream requests and on the spacing between them (AIMD): every overloaded
+ * response (429, 5xx or a timeout) halves the concurrency limit and doubles the spacing, and a run of successful
+ * responses raises the limit by one and halves the spacing again.
+ * <p>
+ * Waits on a Lock rather than a monitor, so callers running on virtual threads do not pin their carrier thread.
+ */
+public class UpstreamThrottle {
+
+    private static final long MIN_SPACING_STEP_MILLIS = 50;
+
+    private final int maxConcurrency;
+    private final long maxSpacingMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private int limit;
+    private int inFlight = 0;
+    private int successes = 0;
+    private long spacingMillis = 0;
+    private long nextStartMillis = 0;
+
+    public UpstreamThrottle(int maxConcurrency, long maxSpacingMillis) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxSpacingMillis = maxSpacingMillis;
+        this.limit = this.maxConcurrency;
+    }
+
+    // Blocks until a request may start, the caller must call release once it is done
+    public void acquire() throws InterruptedIOException {
+        long delay;
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, nextStartMillis);
+            nextStartMillis = start + spacingMillis;
+            delay = start - now;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upstream slot.");
+        } finally {
+            lock.unlock();
+        }
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while pacing upstream requests.");
+            }
+        }
+    }
+
+    // retryAfterMillis > 0 holds back every request until the upstream's Retry-After has passed
+    public void release(boolean overloaded, long retryAfterMillis) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded) {
+                successes = 0;
+                limit = Math.max(1, limit / 2);
+                spacingMillis = Math.min(maxSpacingMillis, Math.max(MIN_SPACING_STEP_MILLIS, spacingMillis * 2));
+                if (retryAfterMillis > 0) {
+                    nextStartMillis = Math.max(nextStartMillis, System.currentTimeMillis() + retryAfterMillis);
+                }
+            } else if (++successes >= limit) {
+                successes = 0;
+                limit = Math.min(maxConcurrency, limit + 1);
+                spacingMillis = spacingMillis / 2 < MIN_SPACING_STEP_MILLIS ? 0 : spacingMillis / 2;
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Gives back a slot whose request was never sent, without adapting the limit
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long spacingMillis() {
+        lock.lock();
+        try {
+            return spacingMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+/**
+ * Thrown instead of calling the upstream while its circuit breaker is open.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
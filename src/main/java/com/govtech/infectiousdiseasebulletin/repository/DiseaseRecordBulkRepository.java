@@ -0,0 +1,38 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk upsert paths for large pages, written straight from the DTOs without going through managed entities.
+ * Rows are keyed on (dataset, epi_year, disease_id), so re-fetched records update in place instead of duplicating;
+ * a record whose year changed is moved to the partition of its new year.
+ */
+public interface DiseaseRecordBulkRepository {
+
+    // moved receives the previous state of every existing row that the batch moves to another
+    // (disease, epi_year, epi_week) cell, before the row is overwritten
+    int copyUpsert(String dataset, List<DiseaseDTO.Disease> diseaseList, Consumer<DiseaseCase> moved);
+
+    // Rows are written to COPY as the source produces them, nothing is buffered per page
+    int copyUpsertStream(String dataset, DiseaseCaseSource source, Consumer<DiseaseCase> moved);
+
+    int batchUpsert(String dataset, List<DiseaseDTO.Disease> diseaseList, Consumer<DiseaseCase> moved);
+
+    // Held until the surrounding transaction ends. The database only enforces (dataset, epi_year, disease_id), so
+    // every write of a dataset's records takes this first to keep (dataset, disease_id) unique across years.
+    void lockDatasetWrites(String dataset);
+
+    // Gives the current year and every year found in the default partition a partition of its own
+    void createYearPartitions();
+
+    @FunctionalInterface
+    interface DiseaseCaseSource {
+        void forEach(Consumer<DiseaseCase> sink) throws IOException;
+    }
+
+}
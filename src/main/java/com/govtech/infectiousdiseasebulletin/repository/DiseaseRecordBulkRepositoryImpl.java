@@ -0,0 +1,242 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class DiseaseRecordBulkRepositoryImpl implements DiseaseRecordBulkRepository {
+
+    // Rows that did not change are left untouched, so re-running an ingest writes nothing
+    private static final String ON_CONFLICT_SQL = " ON CONFLICT (dataset, epi_year, disease_id) DO UPDATE SET " +
+            "epi_week = EXCLUDED.epi_week, disease = EXCLUDED.disease, number_of_cases = EXCLUDED.number_of_cases " +
+            "WHERE (disease_records.epi_week, disease_records.disease, disease_records.number_of_cases) " +
+            "IS DISTINCT FROM (EXCLUDED.epi_week, EXCLUDED.disease, EXCLUDED.number_of_cases)";
+
+    // ordinal is the position of the row in the page, a disease_id repeated within one page keeps its last row
+    // like the batch and JPA paths do
+    private static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE IF NOT EXISTS disease_records_staging " +
+            "(ordinal bigint, disease_id bigint, epi_year integer, epi_week integer, disease varchar(255), number_of_cases bigint) " +
+            "ON COMMIT DELETE ROWS";
+
+    private static final String COPY_SQL = "COPY disease_records_staging (ordinal, disease_id, epi_year, epi_week, disease, number_of_cases) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String LAST_STAGED_SQL = "SELECT DISTINCT ON (disease_id) disease_id, epi_year, epi_week, disease, " +
+            "number_of_cases FROM disease_records_staging ORDER BY disease_id, ordinal DESC";
+
+    // Read before the upsert: rows whose record now lands in another (disease, epi_year, epi_week) cell
+    private static final String MOVED_STAGING_SQL = "SELECT disease_records.disease_id, disease_records.disease, " +
+            "disease_records.epi_year, disease_records.epi_week, disease_records.number_of_cases FROM disease_records " +
+            "JOIN (" + LAST_STAGED_SQL + ") incoming ON disease_records.disease_id = incoming.disease_id " +
+            "WHERE disease_records.dataset = ? AND (disease_records.disease, disease_records.epi_year, disease_records.epi_week) " +
+            "IS DISTINCT FROM (incoming.disease, incoming.epi_year, incoming.epi_week)";
+
+    // The unique key includes the partition key, so a record whose year changed is removed from its old
+    // partition before the upsert writes it to the new one
+    private static final String DELETE_MOVED_STAGING_SQL = "DELETE FROM disease_records USING (" + LAST_STAGED_SQL + ") incoming " +
+            "WHERE disease_records.dataset = ? AND disease_records.disease_id = incoming.disease_id " +
+            "AND disease_records.epi_year <> incoming.epi_year";
+
+    private static final String MERGE_STAGING_SQL = "INSERT INTO disease_records (dataset, disease_id, epi_year, epi_week, disease, number_of_cases) " +
+            "SELECT ?, disease_id, epi_year, epi_week, disease, number_of_cases FROM (" + LAST_STAGED_SQL + ") incoming" +
+            ON_CONFLICT_SQL;
+
+    private static final String DELETE_MOVED_SQL = "DELETE FROM disease_records USING unnest(?::bigint[], ?::integer[]) " +
+            "AS incoming (disease_id, epi_year) WHERE disease_records.dataset = ? " +
+            "AND disease_records.disease_id = incoming.disease_id AND disease_records.epi_year <> incoming.epi_year";
+
+    private static final String MOVED_SQL = "SELECT disease_records.disease_id, disease_records.disease, " +
+            "disease_records.epi_year, disease_records.epi_week, disease_records.number_of_cases FROM disease_records " +
+            "JOIN unnest(?::bigint[], ?::integer[], ?::integer[], ?::varchar[]) AS incoming (disease_id, epi_year, epi_week, disease) " +
+            "ON disease_records.disease_id = incoming.disease_id WHERE disease_records.dataset = ? " +
+            "AND (disease_records.disease, disease_records.epi_year, disease_records.epi_week) " +
+            "IS DISTINCT FROM (incoming.disease, incoming.epi_year, incoming.epi_week)";
+
+    private static final String UPSERT_SQL = "INSERT INTO disease_records (dataset, disease_id, epi_year, epi_week, disease, number_of_cases) " +
+            "VALUES (?, ?, ?, ?, ?, ?)" + ON_CONFLICT_SQL;
+
+    // Years that reached the default partition, and the current one, get their own partition
+    private static final String CREATE_YEAR_PARTITIONS_SQL = "SELECT create_disease_records_partition('disease_records', year) " +
+            "FROM (SELECT DISTINCT epi_year AS year FROM disease_records_default WHERE epi_year > 0 " +
+            "UNION SELECT CAST(EXTRACT(YEAR FROM CURRENT_DATE) AS integer)) years ORDER BY year";
+
+    // Not the key of the ingest's session lock: that one is held on a connection of its own while the run writes
+    private static final String LOCK_DATASET_WRITES_SQL = "SELECT pg_advisory_xact_lock(hashtext('write|' || ?))";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DiseaseRecordBulkRepositoryImpl(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void createYearPartitions() {
+        jdbcTemplate.execute(CREATE_YEAR_PARTITIONS_SQL);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockDatasetWrites(String dataset) {
+        jdbcTemplate.query(LOCK_DATASET_WRITES_SQL, (RowCallbackHandler) resultSet -> { }, dataset);
+    }
+
+    @Override
+    @Transactional
+    public int copyUpsert(String dataset, List<DiseaseDTO.Disease> diseaseList, Consumer<DiseaseCase> moved) {
+        if (diseaseList.isEmpty()) {
+            return 0;
+        }
+        return copyUpsertStream(dataset, sink -> diseaseList.forEach(disease -> sink.accept(DiseaseCase.of(disease))),
+                moved);
+    }
+
+    // COPY cannot resolve conflicts itself, so rows are copied into a transaction-scoped staging table first
+    @Override
+    @Transactional
+    public int copyUpsertStream(String dataset, DiseaseCaseSource source, Consumer<DiseaseCase> moved) {
+        // Reuse the connection bound to the surrounding transaction
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_SQL);
+            }
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(pgConnection, COPY_SQL), StandardCharsets.UTF_8))) {
+                long[] ordinal = {0};
+                source.forEach(diseaseCase -> writeCsvRow(writer, ordinal[0]++, diseaseCase));
+            }
+            try (PreparedStatement statement = connection.prepareStatement(MOVED_STAGING_SQL)) {
+                statement.setString(1, dataset);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        moved.accept(toDiseaseCase(resultSet));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_MOVED_STAGING_SQL)) {
+                statement.setString(1, dataset);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(MERGE_STAGING_SQL)) {
+                statement.setString(1, dataset);
+                return statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY upsert into disease_records failed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("COPY upsert into disease_records failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int batchUpsert(String dataset, List<DiseaseDTO.Disease> diseaseList, Consumer<DiseaseCase> moved) {
+        if (diseaseList.isEmpty()) {
+            return 0;
+        }
+
+        List<DiseaseCase> diseaseCases = diseaseList.stream().map(DiseaseCase::of).toList();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(MOVED_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    diseaseCases.stream().map(DiseaseCase::id).toArray(Long[]::new)));
+            statement.setArray(2, connection.createArrayOf("integer",
+                    diseaseCases.stream().map(DiseaseCase::epiYear).toArray(Integer[]::new)));
+            statement.setArray(3, connection.createArrayOf("integer",
+                    diseaseCases.stream().map(DiseaseCase::epiWeek).toArray(Integer[]::new)));
+            statement.setArray(4, connection.createArrayOf("varchar",
+                    diseaseCases.stream().map(DiseaseCase::disease).toArray(String[]::new)));
+            statement.setString(5, dataset);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> moved.accept(toDiseaseCase(resultSet)));
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_MOVED_SQL);
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    diseaseCases.stream().map(DiseaseCase::id).toArray(Long[]::new)));
+            statement.setArray(2, connection.createArrayOf("integer",
+                    diseaseCases.stream().map(DiseaseCase::epiYear).toArray(Integer[]::new)));
+            statement.setString(3, dataset);
+            return statement;
+        });
+
+        // Combined with reWriteBatchedInserts=true on the JDBC url, each batch is sent as multi-row inserts
+        jdbcTemplate.batchUpdate(UPSERT_SQL, diseaseCases, BATCH_SIZE, (ps, diseaseCase) -> {
+            ps.setString(1, dataset);
+            ps.setLong(2, diseaseCase.id());
+            ps.setInt(3, diseaseCase.epiYear());
+            ps.setInt(4, diseaseCase.epiWeek());
+            ps.setString(5, diseaseCase.disease());
+            ps.setLong(6, diseaseCase.numberOfCases());
+        });
+        return diseaseList.size();
+    }
+
+    private static DiseaseCase toDiseaseCase(ResultSet resultSet) throws SQLException {
+        return new DiseaseCase(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3), resultSet.getInt(4),
+                resultSet.getLong(5));
+    }
+
+    private static void writeCsvRow(Writer writer, long ordinal, DiseaseCase diseaseCase) {
+        try {
+            writer.write(Long.toString(ordinal));
+            writer.write(',');
+            writer.write(Long.toString(diseaseCase.id()));
+            writer.write(',');
+            writer.write(Integer.toString(diseaseCase.epiYear()));
+            writer.write(',');
+            writer.write(Integer.toString(diseaseCase.epiWeek()));
+            writer.write(',');
+            if (diseaseCase.disease() != null) {
+                writer.write(csv(diseaseCase.disease()));
+            }
+            writer.write(',');
+            writer.write(Long.toString(diseaseCase.numberOfCases()));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csv(String value) {
+        // An unquoted empty field is read back as NULL
+        if (value.isEmpty()) {
+            return "\"\"";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
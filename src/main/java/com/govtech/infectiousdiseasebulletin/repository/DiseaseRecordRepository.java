@@ -2,21 +2,40 @@ package com.govtech.infectiousdiseasebulletin.repository;
 
 import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
 import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.stream.Stream;
 
 @Repository
-public interface DiseaseRecordRepository extends JpaRepository<DiseaseRecord, Long> {
+public interface DiseaseRecordRepository extends JpaRepository<DiseaseRecord, Long>, DiseaseRecordBulkRepository {
 
-    @Query("SELECT MAX(d.diseaseId) FROM DiseaseRecord d")
-    Long findMaxDiseaseId();
+    boolean existsByDataset(String dataset);
 
-    @QueryHints(value = @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
-    @Query("SELECT d FROM DiseaseRecord d ORDER BY d.epiYear ASC, d.disease ASC, d.diseaseId ASC")
-    Stream<DiseaseRecord> streamAll();
+    List<DiseaseRecord> findByDatasetAndDiseaseIdIn(String dataset, Collection<Long> diseaseIds);
+
+    @QueryHints(value = @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT d FROM DiseaseRecord d WHERE d.dataset = :dataset ORDER BY d.epiYear ASC, d.disease ASC, d.diseaseId ASC")
+    Stream<DiseaseRecord> streamAll(@Param("dataset") String dataset);
+
+    // The year bounds prune the scan to the partitions of those years
+    @QueryHints(value = @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT d FROM DiseaseRecord d WHERE d.dataset = :dataset AND d.disease = :disease " +
+            "AND d.epiYear BETWEEN :fromYear AND :toYear AND d.epiWeek BETWEEN :fromWeek AND :toWeek AND d.numberOfCases > 0")
+    Stream<DiseaseRecord> streamByDisease(@Param("dataset") String dataset, @Param("disease") String disease,
+                                          @Param("fromYear") int fromYear, @Param("toYear") int toYear,
+                                          @Param("fromWeek") int fromWeek, @Param("toWeek") int toWeek);
+
+    @QueryHints(value = @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT d FROM DiseaseRecord d WHERE d.dataset = :dataset AND d.epiYear BETWEEN :fromYear AND :toYear " +
+            "AND d.epiWeek BETWEEN :fromWeek AND :toWeek AND d.numberOfCases > 0")
+    Stream<DiseaseRecord> streamByYears(@Param("dataset") String dataset, @Param("fromYear") int fromYear, @Param("toYear") int toYear,
+                                        @Param("fromWeek") int fromWeek, @Param("toWeek") int toWeek);
 
 }
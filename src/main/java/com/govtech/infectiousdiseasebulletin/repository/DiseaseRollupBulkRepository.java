@@ -0,0 +1,19 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseYear;
+
+import java.util.Collection;
+
+/**
+ * Recomputes rollups in the database from disease_records, so a batch only costs the cells it touched.
+ */
+public interface DiseaseRollupBulkRepository {
+
+    // Recomputes every bucket of the given (disease, year) cells of one dataset and drops the buckets left without
+    // records. The cells a moved record left must be passed too.
+    int refresh(String dataset, Collection<DiseaseYear> touched);
+
+    // Recomputes all rollups of one dataset, e.g. to backfill a dataset ingested before rollups existed
+    int refreshAll(String dataset);
+
+}
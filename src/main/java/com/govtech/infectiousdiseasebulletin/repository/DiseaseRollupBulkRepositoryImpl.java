@@ -0,0 +1,95 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseYear;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public class DiseaseRollupBulkRepositoryImpl implements DiseaseRollupBulkRepository {
+
+    // One row per (dataset, disease, year, week); like the bulletin, the latest record of a week wins
+    private static final String WEEKLY_SQL = "SELECT DISTINCT ON (dataset, disease, epi_year, epi_week) dataset, disease, " +
+            "epi_year, epi_week, GREATEST(COALESCE(number_of_cases, 0), 0) AS cases " +
+            "FROM disease_records WHERE disease IS NOT NULL AND epi_year > 0 AND epi_week > 0 %s" +
+            "ORDER BY dataset, disease, epi_year, epi_week, disease_id DESC";
+
+    // The separate list of years lets the planner prune the scan to the partitions of the touched years
+    private static final String TOUCHED_FILTER = "AND dataset = ? AND epi_year = ANY(?::integer[]) " +
+            "AND (disease, epi_year) IN (SELECT * FROM unnest(?::varchar[], ?::integer[])) ";
+
+    // Every bucket of every granularity computed from the weekly rows
+    private static final String BUCKETS_SQL = "SELECT dataset, disease, epi_year, 'WEEK' AS granularity, epi_week AS bucket, " +
+            "cases AS total_cases, CASE WHEN cases > 0 THEN 1 ELSE 0 END AS weeks_with_cases FROM weekly " +
+            "UNION ALL SELECT dataset, disease, epi_year, 'PERIOD', LEAST((epi_week - 1) / 4 + 1, 13), SUM(cases), " +
+            "COUNT(*) FILTER (WHERE cases > 0) FROM weekly GROUP BY dataset, disease, epi_year, LEAST((epi_week - 1) / 4 + 1, 13) " +
+            "UNION ALL SELECT dataset, disease, epi_year, 'QUARTER', LEAST((epi_week - 1) / 13 + 1, 4), SUM(cases), " +
+            "COUNT(*) FILTER (WHERE cases > 0) FROM weekly GROUP BY dataset, disease, epi_year, LEAST((epi_week - 1) / 13 + 1, 4) " +
+            "UNION ALL SELECT dataset, disease, epi_year, 'YEAR', 1, SUM(cases), " +
+            "COUNT(*) FILTER (WHERE cases > 0) FROM weekly GROUP BY dataset, disease, epi_year";
+
+    // Unchanged buckets are left untouched
+    private static final String UPSERT_SQL = "WITH weekly AS (%s) " +
+            "INSERT INTO disease_rollups (dataset, disease, epi_year, granularity, bucket, total_cases, weeks_with_cases) " +
+            BUCKETS_SQL + " " +
+            "ON CONFLICT (dataset, disease, epi_year, granularity, bucket) DO UPDATE SET " +
+            "total_cases = EXCLUDED.total_cases, weeks_with_cases = EXCLUDED.weeks_with_cases " +
+            "WHERE (disease_rollups.total_cases, disease_rollups.weeks_with_cases) " +
+            "IS DISTINCT FROM (EXCLUDED.total_cases, EXCLUDED.weeks_with_cases)";
+
+    // A record can move to another disease, year or week, so a touched cell can lose buckets or its last record
+    private static final String DELETE_EMPTY_SQL = "WITH weekly AS (%s), buckets AS (" + BUCKETS_SQL + ") " +
+            "DELETE FROM disease_rollups WHERE dataset = ? " +
+            "AND (disease, epi_year) IN (SELECT * FROM unnest(?::varchar[], ?::integer[])) " +
+            "AND NOT EXISTS (SELECT 1 FROM buckets WHERE buckets.disease = disease_rollups.disease " +
+            "AND buckets.epi_year = disease_rollups.epi_year AND buckets.granularity = disease_rollups.granularity " +
+            "AND buckets.bucket = disease_rollups.bucket)";
+
+    private static final String REFRESH_SQL = String.format(UPSERT_SQL, String.format(WEEKLY_SQL, TOUCHED_FILTER));
+    private static final String DELETE_EMPTY_TOUCHED_SQL = String.format(DELETE_EMPTY_SQL, String.format(WEEKLY_SQL, TOUCHED_FILTER));
+    private static final String REFRESH_ALL_SQL = String.format(UPSERT_SQL, String.format(WEEKLY_SQL, "AND dataset = ? "));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DiseaseRollupBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public int refresh(String dataset, Collection<DiseaseYear> touched) {
+        if (touched.isEmpty()) {
+            return 0;
+        }
+        String[] diseases = touched.stream().map(DiseaseYear::disease).toArray(String[]::new);
+        Integer[] years = touched.stream().map(DiseaseYear::epiYear).toArray(Integer[]::new);
+        Integer[] distinctYears = touched.stream().map(DiseaseYear::epiYear).distinct().toArray(Integer[]::new);
+        int deleted = jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(DELETE_EMPTY_TOUCHED_SQL);
+            statement.setString(1, dataset);
+            statement.setArray(2, connection.createArrayOf("integer", distinctYears));
+            statement.setArray(3, connection.createArrayOf("varchar", diseases));
+            statement.setArray(4, connection.createArrayOf("integer", years));
+            statement.setString(5, dataset);
+            statement.setArray(6, connection.createArrayOf("varchar", diseases));
+            statement.setArray(7, connection.createArrayOf("integer", years));
+            return statement;
+        });
+        return deleted + jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(REFRESH_SQL);
+            statement.setString(1, dataset);
+            statement.setArray(2, connection.createArrayOf("integer", distinctYears));
+            statement.setArray(3, connection.createArrayOf("varchar", diseases));
+            statement.setArray(4, connection.createArrayOf("integer", years));
+            return statement;
+        });
+    }
+
+    @Override
+    @Transactional
+    public int refreshAll(String dataset) {
+        return jdbcTemplate.update(REFRESH_ALL_SQL, dataset);
+    }
+}
@@ -0,0 +1,21 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRollup;
+import com.govtech.infectiousdiseasebulletin.model.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DiseaseRollupRepository extends JpaRepository<DiseaseRollup, Long>, DiseaseRollupBulkRepository {
+
+    boolean existsByDataset(String dataset);
+
+    List<DiseaseRollup> findByDatasetAndGranularityAndEpiYearBetweenOrderByDiseaseAscEpiYearAscBucketAsc(
+            String dataset, RollupGranularity granularity, Integer fromYear, Integer toYear);
+
+    List<DiseaseRollup> findByDatasetAndGranularityAndDiseaseAndEpiYearBetweenOrderByEpiYearAscBucketAsc(
+            String dataset, RollupGranularity granularity, String disease, Integer fromYear, Integer toYear);
+
+}
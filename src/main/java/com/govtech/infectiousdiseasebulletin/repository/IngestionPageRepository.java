@@ -0,0 +1,26 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.model.IngestionPage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface IngestionPageRepository extends JpaRepository<IngestionPage, Long> {
+
+    // Inserts or updates the page in one statement, so concurrent writers of the same page cannot collide on the
+    // unique key. Returns the checksum the page had before, null for a new page.
+    @Query(value = "WITH previous AS (SELECT checksum FROM ingestion_pages WHERE resource_id = :resourceId AND page_offset = :pageOffset) " +
+            "INSERT INTO ingestion_pages (resource_id, page_offset, record_count, checksum, committed_at) " +
+            "VALUES (:resourceId, :pageOffset, :recordCount, :checksum, :committedAt) " +
+            "ON CONFLICT (resource_id, page_offset) DO UPDATE SET record_count = EXCLUDED.record_count, " +
+            "checksum = EXCLUDED.checksum, committed_at = EXCLUDED.committed_at " +
+            "RETURNING (SELECT checksum FROM previous)", nativeQuery = true)
+    Long upsert(@Param("resourceId") String resourceId, @Param("pageOffset") long pageOffset,
+                @Param("recordCount") int recordCount, @Param("checksum") long checksum,
+                @Param("committedAt") Instant committedAt);
+
+}
@@ -0,0 +1,23 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface IngestionStateRepository extends JpaRepository<IngestionState, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO ingestion_state (resource_id, last_offset, upstream_total, updated_at) " +
+            "VALUES (:resourceId, :lastOffset, :upstreamTotal, :updatedAt) " +
+            "ON CONFLICT (resource_id) DO UPDATE SET last_offset = EXCLUDED.last_offset, " +
+            "upstream_total = EXCLUDED.upstream_total, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsert(@Param("resourceId") String resourceId, @Param("lastOffset") long lastOffset,
+               @Param("upstreamTotal") long upstreamTotal, @Param("updatedAt") Instant updatedAt);
+
+}
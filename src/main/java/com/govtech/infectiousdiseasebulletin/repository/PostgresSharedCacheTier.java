@@ -0,0 +1,130 @@
+package com.govtech.infectiousdiseasebulletin.repository;
+
+import com.govtech.infectiousdiseasebulletin.service.SharedCacheTier;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Shared tier on the database every replica already uses: entries live in the shared_cache table and messages
+ * go out with NOTIFY. One connection per replica is held for LISTEN while there are subscribers.
+ */
+public class PostgresSharedCacheTier implements SharedCacheTier, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostgresSharedCacheTier.class);
+
+    private static final String CHANNEL = "shared_cache";
+    private static final int POLL_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private static final String GET_SQL = "SELECT payload FROM shared_cache WHERE cache_key = ? AND expires_at > ?";
+    private static final String PUT_SQL = "INSERT INTO shared_cache (cache_key, payload, expires_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (cache_key) DO UPDATE SET payload = EXCLUDED.payload, expires_at = EXCLUDED.expires_at";
+    private static final String EXPIRE_SQL = "DELETE FROM shared_cache WHERE expires_at <= ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+
+    private Thread listener;
+    private volatile boolean running = true;
+
+    public PostgresSharedCacheTier(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Optional<byte[]> get(String key) {
+        List<byte[]> payloads = jdbcTemplate.query(GET_SQL, (rs, rowNum) -> rs.getBytes(1),
+                key, Timestamp.from(Instant.now()));
+        return payloads.stream().findFirst();
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        Instant now = Instant.now();
+        jdbcTemplate.update(PUT_SQL, key, value, Timestamp.from(now.plus(ttl)));
+        jdbcTemplate.update(EXPIRE_SQL, Timestamp.from(now));
+    }
+
+    @Override
+    public void publish(String message) {
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, message);
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> subscriber) {
+        subscribers.add(subscriber);
+        if (listener == null) {
+            listener = new Thread(this::listen, "shared-cache-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    // Reconnects after a failure; messages sent while disconnected are lost, the next publish catches up
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.error("Error occurred while listening for shared cache messages: " + e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String message) {
+        for (Consumer<String> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                LOG.error("Error occurred while handling shared cache message: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+}
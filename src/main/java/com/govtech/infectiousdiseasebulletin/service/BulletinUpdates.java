@@ -0,0 +1,364 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.data.BulletinDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes bulletin changes to subscribed clients as server-sent events.
+ * <p>
+ * Every publish of a dataset's aggregate schedules one flush after the coalescing delay, so a burst of page
+ * commits becomes a single event. A flush diffs the snapshot pushed last against the current one and sends the
+ * changed (disease, year) entries as a "delta" event, serialized once for all subscribers. Idle subscribers hold
+ * no thread, only an open async response, and get a comment line every heartbeat so dropped connections are
+ * noticed.
+ * <p>
+ * Every subscriber sends its events in order on a virtual thread of its own while it has any queued, so a client
+ * that stops reading only blocks itself. A subscriber still stuck in a send at the next heartbeat, or with
+ * {@value #MAX_PENDING_EVENTS} events queued, is completed.
+ */
+@Component
+public class BulletinUpdates implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulletinUpdates.class);
+
+    static final int MAX_PENDING_EVENTS = 16;
+
+    private final ObjectMapper objectMapper;
+    private final long coalesceMs;
+    private final long heartbeatNanos;
+    private final long timeoutMs;
+    private final int maxSubscribers;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("bulletin-updates-send-", 0).factory());
+
+    // Flushes and heartbeats of all datasets, one at a time
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulletin-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BulletinUpdates(ObjectMapper objectMapper,
+                           @Value("${data.push.coalesce-ms:1000}") long coalesceMs,
+                           @Value("${data.push.heartbeat-ms:30000}") long heartbeatMs,
+                           @Value("${data.push.timeout-ms:1800000}") long timeoutMs,
+                           @Value("${data.push.max-subscribers:10000}") int maxSubscribers) {
+        this.objectMapper = objectMapper;
+        this.coalesceMs = coalesceMs;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        this.timeoutMs = timeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Called once per dataset before its aggregate is first loaded
+    public void register(String dataset, DiseaseAggregate diseaseAggregate) {
+        Channel channel = new Channel(dataset, diseaseAggregate);
+        channels.put(dataset, channel);
+        diseaseAggregate.onPublish(() -> published(channel));
+    }
+
+    // Null when the subscriber limit is reached. The first event is the current version, so a client that
+    // missed updates while disconnected knows whether to fetch the full bulletin again.
+    public SseEmitter subscribe(String dataset) {
+        return subscribe(dataset, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(String dataset, SseEmitter emitter) {
+        Channel channel = channels.get(dataset);
+        if (channel == null) {
+            throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        subscriber.onRemove = () -> {
+            channel.subscribers.remove(subscriber);
+            subscribers.decrementAndGet();
+        };
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        // The version event is queued before the subscriber can receive any flush, and under the channel's lock
+        // it is the version the next delta starts from
+        synchronized (channel) {
+            String version = channel.pushed.version();
+            enqueue(subscriber, () -> SseEmitter.event().id(version).name("version").data(version));
+            channel.subscribers.add(subscriber);
+        }
+        // Closed before it was added, e.g. the version event failed already
+        if (subscriber.isClosed()) {
+            channel.subscribers.remove(subscriber);
+        }
+        return emitter;
+    }
+
+    private void published(Channel channel) {
+        if (channel.flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> flush(channel), coalesceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Runs on the scheduler thread only. Subscribers added after the swap of pushed got its version first.
+    private void flush(Channel channel) {
+        channel.flushScheduled.set(false);
+        DiseaseAggregate.Snapshot current = channel.diseaseAggregate.versionedSnapshot();
+        DiseaseAggregate.Snapshot previous;
+        List<Subscriber> recipients;
+        synchronized (channel) {
+            previous = channel.pushed;
+            channel.pushed = current;
+            recipients = List.copyOf(channel.subscribers);
+        }
+        if (recipients.isEmpty() || previous.version().equals(current.version())) {
+            return;
+        }
+
+        // An SseEventBuilder adds to its parts on every build and is not thread-safe, so each subscriber builds
+        // its own from the JSON serialized once here
+        Supplier<SseEmitter.SseEventBuilder> event;
+        if (previous.data().isEmpty()) {
+            // Nothing to diff against yet: the whole bulletin changed, clients fetch it instead
+            event = () -> SseEmitter.event().id(current.version()).name("reload").data(current.version());
+        } else {
+            Map<String, Map<String, List<String>>> changes = changes(previous.data(), current.data());
+            if (changes.isEmpty()) {
+                return;
+            }
+            try {
+                String json = objectMapper.writeValueAsString(
+                        new BulletinDelta(channel.dataset, previous.version(), current.version(), changes));
+                event = () -> SseEmitter.event().id(current.version()).name("delta").data(json, MediaType.APPLICATION_JSON);
+            } catch (JsonProcessingException e) {
+                LOG.error("Error occurred while serializing bulletin delta: " + e.getMessage());
+                return;
+            }
+        }
+        for (Subscriber subscriber : recipients) {
+            enqueue(subscriber, event);
+        }
+    }
+
+    // Entries of current that differ from previous; null for entries that no longer exist. Diseases whose year
+    // data is the same instance in both snapshots were not touched and are skipped without comparing.
+    static Map<String, Map<String, List<String>>> changes(Map<String, Map<String, List<String>>> previous,
+                                                         Map<String, Map<String, List<String>>> current) {
+        Map<String, Map<String, List<String>>> changes = new TreeMap<>();
+        current.forEach((disease, years) -> {
+            Map<String, List<String>> before = previous.get(disease);
+            if (before == years) {
+                return;
+            }
+            Map<String, List<String>> changed = new TreeMap<>();
+            years.forEach((year, ranges) -> {
+                if (before == null || !ranges.equals(before.get(year))) {
+                    changed.put(year, ranges);
+                }
+            });
+            if (before != null) {
+                before.keySet().forEach(year -> {
+                    if (!years.containsKey(year)) {
+                        changed.put(year, null);
+                    }
+                });
+            }
+            if (!changed.isEmpty()) {
+                changes.put(disease, changed);
+            }
+        });
+        previous.forEach((disease, years) -> {
+            if (!current.containsKey(disease)) {
+                Map<String, List<String>> removed = new TreeMap<>();
+                years.keySet().forEach(year -> removed.put(year, null));
+                changes.put(disease, removed);
+            }
+        });
+        return changes;
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                long sendStarted = subscriber.sendStarted;
+                if (sendStarted != 0 && now - sendStarted >= heartbeatNanos) {
+                    LOG.warn("Closing a bulletin subscriber of " + channel.dataset + " that stopped reading");
+                    close(subscriber);
+                } else {
+                    enqueue(subscriber, () -> SseEmitter.event().comment(""));
+                }
+            }
+        }
+    }
+
+    // Starts the subscriber's send loop unless it is already running, so its events go out in order
+    private void enqueue(Subscriber subscriber, Supplier<SseEmitter.SseEventBuilder> event) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            if (subscriber.pending.size() < MAX_PENDING_EVENTS) {
+                subscriber.pending.add(event);
+                if (subscriber.sending) {
+                    return;
+                }
+                subscriber.sending = true;
+                event = null;
+            }
+        }
+        if (event != null) {
+            LOG.warn("Closing a bulletin subscriber with " + MAX_PENDING_EVENTS + " events queued");
+            close(subscriber);
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the emitters are completed by destroy
+            synchronized (subscriber) {
+                subscriber.sending = false;
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Supplier<SseEmitter.SseEventBuilder> event;
+            synchronized (subscriber) {
+                event = subscriber.pending.poll();
+                if (event == null || subscriber.closed) {
+                    subscriber.sending = false;
+                    return;
+                }
+            }
+            boolean sent;
+            subscriber.sendStarted = System.nanoTime();
+            try {
+                sent = send(subscriber.emitter, event.get());
+            } catch (RuntimeException e) {
+                LOG.error("Error occurred while sending a bulletin event: " + e.getMessage());
+                sent = false;
+            } finally {
+                subscriber.sendStarted = 0;
+            }
+            if (!sent) {
+                synchronized (subscriber) {
+                    subscriber.sending = false;
+                }
+                close(subscriber);
+                return;
+            }
+        }
+    }
+
+    // Completing waits for a send in progress, so it runs on a thread of its own rather than the caller's
+    private void close(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        try {
+            sender.execute(subscriber.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        // Interrupts sends still in progress, so completing below does not wait for them
+        sender.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(this::close));
+    }
+
+    private static final class Channel {
+
+        private final String dataset;
+        private final DiseaseAggregate diseaseAggregate;
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+        // Guarded by the channel
+        private DiseaseAggregate.Snapshot pushed;
+
+        private Channel(String dataset, DiseaseAggregate diseaseAggregate) {
+            this.dataset = dataset;
+            this.diseaseAggregate = diseaseAggregate;
+            this.pushed = diseaseAggregate.versionedSnapshot();
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        // Guarded by the subscriber
+        private final Deque<Supplier<SseEmitter.SseEventBuilder>> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+        private Runnable onRemove;
+        // When the send in progress started, 0 while none is
+        private volatile long sendStarted;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        // False when already closed. Removes the subscriber from its channel once, whether it completed, timed
+        // out, failed or was closed here.
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            pending.clear();
+            onRemove.run();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.BulletinCursor;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory materialized view of disease -> year -> week-range summaries.
+ * Built once from the full table, then kept current by merging each saved batch.
+ * <p>
+ * Case counts are kept column-wise: disease names are interned to int ids and every (disease, year) cell is a
+ * primitive array of weekly cases, so recomputing a cell's ranges only allocates the output strings.
+ * <p>
+ * A full load computes the ranges of each disease in parallel on the given fork-join pool; diseases share no
+ * state, so every task only writes its own disease's cells.
+ * <p>
+ * One instance per dataset.
+ */
+public class DiseaseAggregate {
+
+    static final int WEEKS_PER_YEAR = DiseaseQuery.LAST_WEEK;
+
+    // "01".."53", so range strings never go through String.format
+    private static final String[] WEEK_LABELS = new String[WEEKS_PER_YEAR + 1];
+
+    static {
+        for (int week = 1; week <= WEEKS_PER_YEAR; week++) {
+            WEEK_LABELS[week] = (week < 10 ? "0" : "") + week;
+        }
+    }
+
+    // Watermark of an aggregate that was never published with one
+    private static final String NO_WATERMARK = "0";
+
+    // Versions are "<watermark>-<n>": the persisted ingest watermark the data was published at, so replicas and
+    // restarts serving the same data hand out the same version, and n counts the rebuilds and untracked merges
+    // published since that watermark
+    private String watermark = NO_WATERMARK;
+    private long publishedAtWatermark = 0;
+
+    // Newest watermark merged while a load is building, it supersedes the one the load started from
+    private String pendingWatermark;
+
+    // Guarded by this; a load builds a new State without holding the lock and swaps it in when done
+    private State state = new State();
+
+    // Batches merged while a load is building, replayed onto the new state before it is swapped in
+    private List<Delta> pendingDeltas;
+
+    private volatile Snapshot snapshot = new Snapshot(NO_WATERMARK + "-0", Collections.emptyMap());
+    private volatile boolean loaded = false;
+
+    // Null computes on the loading thread
+    private final ForkJoinPool aggregationPool;
+
+    private final List<Runnable> publishListeners = new CopyOnWriteArrayList<>();
+
+    public DiseaseAggregate() {
+        this(null);
+    }
+
+    public DiseaseAggregate(ForkJoinPool aggregationPool) {
+        this.aggregationPool = aggregationPool;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Map<String, Map<String, List<String>>> snapshot() {
+        return snapshot.data();
+    }
+
+    // The published data together with its version, which changes every time the data does
+    public Snapshot versionedSnapshot() {
+        return snapshot;
+    }
+
+    // Called after every new version is published, while the aggregate is locked, so listeners must only
+    // hand the work off
+    public void onPublish(Runnable listener) {
+        publishListeners.add(listener);
+    }
+
+    // Prunes by disease and year through the index before any ranges are computed; a week window is applied
+    // to the weekly cases themselves, so ranges are cut at the window instead of being filtered afterwards
+    public synchronized Map<String, Map<String, List<String>>> query(DiseaseQuery query) {
+        if (query.isUnfiltered()) {
+            return snapshot.data();
+        }
+
+        Map<String, Map<String, List<String>>> result = new TreeMap<>();
+        if (query.disease() != null) {
+            Integer diseaseId = state.diseaseIds.get(query.disease());
+            if (diseaseId != null) {
+                state.collect(diseaseId, query, result);
+            }
+        } else {
+            for (int diseaseId = 0; diseaseId < state.diseaseNames.size(); diseaseId++) {
+                state.collect(diseaseId, query, result);
+            }
+        }
+        return result;
+    }
+
+    // The published snapshot, or for a query with a week window, that window cut from the weekly cases under the
+    // version they were published with. Both are read under the lock that publishes, so they belong together.
+    public Snapshot versionedSnapshot(DiseaseQuery query) {
+        if (query.coversAllWeeks()) {
+            return snapshot;
+        }
+        synchronized (this) {
+            return new Snapshot(snapshot.version(), query(query));
+        }
+    }
+
+    // Rows of a snapshot from versionedSnapshot(query) in (disease, year) order, strictly after the cursor when
+    // there is one. The rows are produced lazily from the immutable snapshot, so a consumer can stream the whole
+    // bulletin without copying it, and every row belongs to the snapshot's version.
+    public Stream<BulletinRow> rows(Snapshot snapshot, DiseaseQuery query, BulletinCursor after) {
+        NavigableMap<String, Map<String, List<String>>> diseases = sorted(snapshot.data());
+        if (query.disease() != null) {
+            diseases = diseases.subMap(query.disease(), true, query.disease(), true);
+        }
+        if (after != null) {
+            diseases = diseases.tailMap(after.disease(), true);
+        }
+        return diseases.entrySet().stream().flatMap(entry -> {
+            String disease = entry.getKey();
+            NavigableMap<String, List<String>> selected = sorted(entry.getValue());
+            if (after != null && disease.equals(after.disease())) {
+                selected = selected.tailMap(after.year(), false);
+            }
+            return selected.entrySet().stream()
+                    .filter(year -> {
+                        int epiYear = Integer.parseInt(year.getKey());
+                        return epiYear >= query.firstYear() && epiYear <= query.lastYear();
+                    })
+                    .map(year -> new BulletinRow(disease, year.getKey(), year.getValue()));
+        });
+    }
+
+    private static <V> NavigableMap<String, V> sorted(Map<String, V> map) {
+        return map instanceof NavigableMap<String, V> navigable ? navigable : new TreeMap<>(map);
+    }
+
+    // Rebuilds from the full table. Until the new state is swapped in, the previous snapshot keeps being
+    // served and filtered queries and merges keep working against the previous state.
+    public void load(Stream<DiseaseRecord> records) {
+        load(records, null);
+    }
+
+    // The watermark is the one read before the table was scanned, null keeps the current one
+    public void load(Stream<DiseaseRecord> records, String watermark) {
+        load(fresh -> records.forEach(record -> {
+            if (hasEpiWeek(record)) {
+                fresh.apply(record.getDisease(), record.getEpiYear(), checkWeek(record.getEpiWeek()),
+                        record.getNumberOfCases() == null ? 0 : record.getNumberOfCases());
+            }
+        }), watermark);
+    }
+
+    // Rebuilds from weekly cases persisted through forEachCell instead of from the table
+    public void restore(Consumer<CellVisitor> cells, String watermark) {
+        load(fresh -> cells.accept(fresh::put), watermark);
+    }
+
+    // Every (disease, year) cell with its weekly cases, index 0 is W01. The arrays are live, read them inside
+    // the visitor only.
+    public synchronized void forEachCell(CellVisitor visitor) {
+        for (int diseaseId = 0; diseaseId < state.diseaseNames.size(); diseaseId++) {
+            String disease = state.diseaseNames.get(diseaseId);
+            state.weeklyCases.get(diseaseId).forEach((year, weeks) -> visitor.visit(disease, year, weeks));
+        }
+    }
+
+    private void load(Consumer<State> fill, String watermark) {
+        synchronized (this) {
+            pendingDeltas = new ArrayList<>();
+            pendingWatermark = null;
+        }
+
+        State fresh = new State();
+        try {
+            fill.accept(fresh);
+            int diseases = fresh.diseaseNames.size();
+            if (aggregationPool == null || diseases < 2) {
+                new RecomputeDiseases(fresh, 0, diseases).compute();
+            } else {
+                aggregationPool.invoke(new RecomputeDiseases(fresh, 0, diseases));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDeltas = null;
+                pendingWatermark = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // Re-applying a batch the scan already saw is harmless, a week's count is simply set again and a week
+            // that a record moved out of only holds that record
+            pendingDeltas.forEach(fresh::apply);
+            pendingDeltas = null;
+            state = fresh;
+            publish(pendingWatermark != null ? pendingWatermark : watermark);
+            pendingWatermark = null;
+            loaded = true;
+        }
+    }
+
+    public synchronized void merge(Collection<DiseaseRecord> records) {
+        Delta delta = new Delta();
+        records.forEach(delta::add);
+        merge(delta);
+    }
+
+    public synchronized void merge(Delta delta) {
+        merge(delta, null);
+    }
+
+    // The watermark is the one committed together with the batch, null keeps the current one
+    public synchronized void merge(Delta delta, String watermark) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (pendingDeltas != null) {
+            pendingDeltas.add(delta);
+            if (watermark != null) {
+                pendingWatermark = watermark;
+            }
+        }
+        // Nothing to merge into yet, the first load will read these rows from the table
+        if (!loaded) {
+            return;
+        }
+
+        state.apply(delta);
+        publish(watermark);
+    }
+
+    // Rows without an epi week are stored with year and week 0
+    private static boolean hasEpiWeek(DiseaseRecord record) {
+        return record.getDisease() != null && record.getEpiYear() != null && record.getEpiYear() > 0
+                && record.getEpiWeek() != null && record.getEpiWeek() > 0;
+    }
+
+    private static int checkWeek(int week) {
+        if (week > WEEKS_PER_YEAR) {
+            throw new IllegalArgumentException("Unexpected epi week: " + week);
+        }
+        return week;
+    }
+
+    // Only the year maps of diseases changed since the last publish are built again, the others are shared
+    // with the previous snapshot
+    private void publish(String watermark) {
+        NavigableMap<String, Map<String, List<String>>> copy = new TreeMap<>();
+        for (int diseaseId = 0; diseaseId < state.ranges.size(); diseaseId++) {
+            NavigableMap<String, List<String>> yearData = state.published(diseaseId);
+            if (!yearData.isEmpty()) {
+                copy.put(state.diseaseNames.get(diseaseId), yearData);
+            }
+        }
+        if (watermark == null || watermark.equals(this.watermark)) {
+            publishedAtWatermark++;
+        } else {
+            this.watermark = watermark;
+            publishedAtWatermark = 0;
+        }
+        snapshot = new Snapshot(this.watermark + "-" + publishedAtWatermark, Collections.unmodifiableNavigableMap(copy));
+        publishListeners.forEach(Runnable::run);
+    }
+
+    private static class State {
+
+        // disease id <-> disease name
+        private final Map<String, Integer> diseaseIds = new HashMap<>();
+        private final List<String> diseaseNames = new ArrayList<>();
+
+        // disease id -> epi_year -> cases per week, index 0 is W01; 0 means no cases that week
+        private final List<NavigableMap<Integer, long[]>> weeklyCases = new ArrayList<>();
+
+        // disease id -> epi_year -> continuous ranges, only recomputed for touched cells
+        private final List<Map<Integer, List<String>>> ranges = new ArrayList<>();
+
+        // disease id -> year data as published, null once a cell of the disease is recomputed
+        private final List<NavigableMap<String, List<String>>> published = new ArrayList<>();
+
+        private final StringBuilder rangeBuilder = new StringBuilder(32);
+
+        private int intern(String disease) {
+            Integer diseaseId = diseaseIds.get(disease);
+            if (diseaseId == null) {
+                diseaseId = diseaseNames.size();
+                diseaseIds.put(disease, diseaseId);
+                diseaseNames.add(disease);
+                weeklyCases.add(new TreeMap<>());
+                ranges.add(new HashMap<>());
+                published.add(null);
+            }
+            return diseaseId;
+        }
+
+        private int apply(String disease, int year, int week, long numberOfCases) {
+            int diseaseId = intern(disease);
+            long[] weeks = weeklyCases.get(diseaseId).computeIfAbsent(year, k -> new long[WEEKS_PER_YEAR]);
+
+            // Weeks with zero cases are excluded from the bulletin
+            weeks[week - 1] = Math.max(numberOfCases, 0);
+            return diseaseId;
+        }
+
+        private void put(String disease, int year, long[] weeks) {
+            if (weeks.length != WEEKS_PER_YEAR) {
+                throw new IllegalArgumentException("Expected " + WEEKS_PER_YEAR + " weeks for " + disease + " " + year);
+            }
+            long[] cell = weeklyCases.get(intern(disease)).computeIfAbsent(year, k -> new long[WEEKS_PER_YEAR]);
+            for (int i = 0; i < WEEKS_PER_YEAR; i++) {
+                cell[i] = Math.max(weeks[i], 0);
+            }
+        }
+
+        // Moved records are subtracted from their old weeks first; a week the delta also sets simply takes the
+        // new value
+        private void apply(Delta delta) {
+            delta.removed.forEach((disease, years) -> years.forEach((year, weeks) -> {
+                Integer diseaseId = diseaseIds.get(disease);
+                long[] current = diseaseId == null ? null : weeklyCases.get(diseaseId).get(year);
+                if (current == null) {
+                    return;
+                }
+                for (int i = 0; i < WEEKS_PER_YEAR; i++) {
+                    if (weeks[i] != Delta.UNTOUCHED && delta.set(disease, year, i + 1) == Delta.UNTOUCHED) {
+                        current[i] = Math.max(current[i] - weeks[i], 0);
+                    }
+                }
+                recompute(diseaseId, year);
+            }));
+            delta.cells.forEach((disease, years) -> years.forEach((year, weeks) -> {
+                int diseaseId = -1;
+                for (int i = 0; i < WEEKS_PER_YEAR; i++) {
+                    if (weeks[i] != Delta.UNTOUCHED) {
+                        diseaseId = apply(disease, year, i + 1, weeks[i]);
+                    }
+                }
+                if (diseaseId >= 0) {
+                    recompute(diseaseId, year);
+                }
+            }));
+        }
+
+        private void recompute(int diseaseId, int year) {
+            recompute(diseaseId, year, rangeBuilder);
+        }
+
+        // Touches only the given disease's entries, so different diseases can be recomputed concurrently
+        private void recompute(int diseaseId, int year, StringBuilder builder) {
+            List<String> yearRanges = getContinuousRangesWithCases(weeklyCases.get(diseaseId).get(year), builder);
+            if (yearRanges.isEmpty()) {
+                ranges.get(diseaseId).remove(year);
+            } else {
+                ranges.get(diseaseId).put(year, yearRanges);
+            }
+            published.set(diseaseId, null);
+        }
+
+        private NavigableMap<String, List<String>> published(int diseaseId) {
+            NavigableMap<String, List<String>> yearData = published.get(diseaseId);
+            if (yearData == null) {
+                NavigableMap<String, List<String>> built = new TreeMap<>();
+                ranges.get(diseaseId).forEach((year, list) -> built.put(Integer.toString(year), list));
+                yearData = Collections.unmodifiableNavigableMap(built);
+                published.set(diseaseId, yearData);
+            }
+            return yearData;
+        }
+
+        private void collect(int diseaseId, DiseaseQuery query, Map<String, Map<String, List<String>>> result) {
+            Map<String, List<String>> yearData = new TreeMap<>();
+            weeklyCases.get(diseaseId).subMap(query.firstYear(), true, query.lastYear(), true).forEach((year, weeks) -> {
+                List<String> yearRanges = query.coversAllWeeks()
+                        ? ranges.get(diseaseId).get(year)
+                        : getContinuousRangesWithCases(weeks, query.firstWeek(), query.lastWeek(), rangeBuilder);
+                if (yearRanges != null && !yearRanges.isEmpty()) {
+                    yearData.put(Integer.toString(year), yearRanges);
+                }
+            });
+            if (!yearData.isEmpty()) {
+                result.put(diseaseNames.get(diseaseId), yearData);
+            }
+        }
+    }
+
+    // Splits the disease ids in halves down to single diseases; each leaf recomputes every year of its disease
+    // with its own builder and prepares the disease's published year data
+    private static final class RecomputeDiseases extends RecursiveAction {
+
+        private final DiseaseAggregate.State state;
+        private final int from;
+        private final int to;
+
+        private RecomputeDiseases(DiseaseAggregate.State state, int from, int to) {
+            this.state = state;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RecomputeDiseases(state, from, middle), new RecomputeDiseases(state, middle, to));
+                return;
+            }
+            StringBuilder builder = new StringBuilder(32);
+            for (int diseaseId = from; diseaseId < to; diseaseId++) {
+                for (Integer year : state.weeklyCases.get(diseaseId).keySet()) {
+                    state.recompute(diseaseId, year, builder);
+                }
+                state.published(diseaseId);
+            }
+        }
+    }
+
+    // Helper method to find continuous week ranges and calculate total cases in a single pass over the weeks
+    static List<String> getContinuousRangesWithCases(long[] weeks, StringBuilder builder) {
+        return getContinuousRangesWithCases(weeks, 1, WEEKS_PER_YEAR, builder);
+    }
+
+    static List<String> getContinuousRangesWithCases(long[] weeks, int firstWeek, int lastWeek, StringBuilder builder) {
+        List<String> ranges = null;
+        int start = 0;
+        long totalCases = 0;
+
+        for (int week = firstWeek; week <= lastWeek + 1; week++) {
+            long cases = week <= lastWeek ? weeks[week - 1] : 0;
+            if (cases > 0) {
+                if (start == 0) {
+                    start = week;
+                }
+                totalCases += cases; // Accumulate the cases
+            } else if (start != 0) { // A gap (or the end of the year) closes the range
+                if (ranges == null) {
+                    ranges = new ArrayList<>(4);
+                }
+                ranges.add(formatRange(builder, start, week - 1, totalCases));
+                start = 0;
+                totalCases = 0;
+            }
+        }
+        return ranges == null ? Collections.emptyList() : Collections.unmodifiableList(ranges);
+    }
+
+    private static String formatRange(StringBuilder builder, int start, int end, long totalCases) {
+        builder.setLength(0);
+        builder.append('W').append(WEEK_LABELS[start]);
+        if (start != end) { // Range of weeks with total cases, otherwise a single week with cases
+            builder.append("-W").append(WEEK_LABELS[end]);
+        }
+        return builder.append(',').append(totalCases).toString();
+    }
+
+    @FunctionalInterface
+    public interface CellVisitor {
+        void visit(String disease, int year, long[] weeks);
+    }
+
+    public record Snapshot(String version, Map<String, Map<String, List<String>>> data) {
+    }
+
+    /**
+     * Pending changes for one committed batch, keyed by (disease, year) cell. Its size is bounded by the
+     * number of cells a batch touches, not by the number of records that were streamed through it.
+     */
+    public static class Delta {
+
+        private static final long UNTOUCHED = -1;
+
+        // disease -> epi_year -> cases per week, a later record for the same week wins
+        private final Map<String, Map<Integer, long[]>> cells = new HashMap<>();
+
+        // disease -> epi_year -> cases per week that records moved out of, subtracted unless the week is also set
+        private final Map<String, Map<Integer, long[]>> removed = new HashMap<>();
+
+        public void add(DiseaseCase diseaseCase) {
+            if (diseaseCase.disease() != null && diseaseCase.hasEpiWeek()) {
+                put(diseaseCase.disease(), diseaseCase.epiYear(), diseaseCase.epiWeek(), diseaseCase.numberOfCases());
+            }
+        }
+
+        public void add(DiseaseRecord record) {
+            if (hasEpiWeek(record)) {
+                put(record.getDisease(), record.getEpiYear(), record.getEpiWeek(),
+                        record.getNumberOfCases() == null ? 0 : record.getNumberOfCases());
+            }
+        }
+
+        // The previous state of a record that moved to another disease, year or week
+        public void remove(DiseaseCase previous) {
+            if (previous.disease() != null && previous.hasEpiWeek()) {
+                long[] weeks = cell(removed, previous.disease(), previous.epiYear(), checkWeek(previous.epiWeek()));
+                weeks[previous.epiWeek() - 1] = Math.max(weeks[previous.epiWeek() - 1], 0)
+                        + Math.max(previous.numberOfCases(), 0);
+            }
+        }
+
+        public boolean isEmpty() {
+            return cells.isEmpty() && removed.isEmpty();
+        }
+
+        private void put(String disease, int year, int week, long numberOfCases) {
+            cell(cells, disease, year, checkWeek(week))[week - 1] = Math.max(numberOfCases, 0);
+        }
+
+        private static long[] cell(Map<String, Map<Integer, long[]>> cells, String disease, int year, int week) {
+            if (week < 1) {
+                throw new IllegalArgumentException("Unexpected epi week: " + week);
+            }
+            return cells.computeIfAbsent(disease, k -> new HashMap<>()).computeIfAbsent(year, k -> {
+                long[] untouched = new long[WEEKS_PER_YEAR];
+                Arrays.fill(untouched, UNTOUCHED);
+                return untouched;
+            });
+        }
+
+        private long set(String disease, int year, int week) {
+            long[] weeks = cells.getOrDefault(disease, Collections.emptyMap()).get(year);
+            return weeks == null ? UNTOUCHED : weeks[week - 1];
+        }
+    }
+}
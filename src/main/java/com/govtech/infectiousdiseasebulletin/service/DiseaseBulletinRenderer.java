@@ -0,0 +1,114 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes the bulletin once per data version and dataset, as plain and gzipped JSON, so requests only copy bytes.
+ * Also writes bulletin rows as NDJSON for the streaming endpoint.
+ */
+@Component
+public class DiseaseBulletinRenderer {
+
+    private static final int NDJSON_FLUSH_ROWS = 256;
+
+    private final ObjectMapper objectMapper;
+
+    // dataset -> latest rendering, completed once it is rendered
+    private final Map<String, Rendering> latest = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DiseaseBulletinRenderer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public RenderedBulletin render(String dataset, DiseaseAggregate.Snapshot snapshot) {
+        Rendering current = latest.get(dataset);
+        if (current == null || !current.version().equals(snapshot.version())) {
+            // Only the claim happens inside the map's lock; the request that claims the version renders it
+            // afterwards, concurrent requests for the same version wait for its result
+            Rendering claim = new Rendering(snapshot.version(), new CompletableFuture<>());
+            current = latest.compute(dataset, (key, previous) ->
+                    previous != null && previous.version().equals(snapshot.version()) ? previous : claim);
+            if (current == claim) {
+                try {
+                    claim.result().complete(toRenderedBulletin(snapshot));
+                } catch (RuntimeException e) {
+                    // The next request for this version tries again
+                    latest.remove(dataset, claim);
+                    claim.result().completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return current.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private RenderedBulletin toRenderedBulletin(DiseaseAggregate.Snapshot snapshot) {
+        byte[] json = toJson(snapshot);
+        // The gzipped bytes are a different representation, so they get their own ETag
+        return new RenderedBulletin(snapshot.version(), "\"" + snapshot.version() + "\"",
+                "\"" + snapshot.version() + "-gz\"", json, gzip(json));
+    }
+
+    // Newline-delimited JSON, one row per line. Flushed every few rows so the client sees data while the rest is
+    // still being written and the server never holds more than a buffer of it.
+    public void writeNdjson(Stream<BulletinRow> rows, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.CLOSE_CLOSEABLE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        int written = 0;
+        for (Iterator<BulletinRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            writer.writeValue(out, iterator.next());
+            out.write('\n');
+            if (++written % NDJSON_FLUSH_ROWS == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    private byte[] toJson(DiseaseAggregate.Snapshot snapshot) {
+        try {
+            return objectMapper.writeValueAsBytes(snapshot.data());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize disease data: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private record Rendering(String version, CompletableFuture<RenderedBulletin> result) {
+    }
+
+    public record RenderedBulletin(String version, String eTag, String gzipETag, byte[] json, byte[] gzip) {
+    }
+}
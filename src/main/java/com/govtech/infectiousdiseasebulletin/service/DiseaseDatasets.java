@@ -0,0 +1,167 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.config.DatasetProperties;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import com.govtech.infectiousdiseasebulletin.proxy.DiseaseProxy;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.CronTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The datasets served by this instance. Each one gets its own DiseaseService with its own aggregate, snapshot,
+ * query cache, checkpoint and metrics, and its own ingest schedule; the ingest runs share one bounded pool.
+ */
+@Component
+public class DiseaseDatasets implements SchedulingConfigurer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiseaseDatasets.class);
+
+    private static final ZoneId SCHEDULE_ZONE = ZoneId.of("Asia/Singapore");
+
+    private final Map<String, DiseaseService> services = new LinkedHashMap<>();
+    private final ExecutorService ingestExecutor;
+    private final DiseaseRecordRepository diseaseRecordRepository;
+    private final DiseaseRollupService diseaseRollupService;
+    private final String defaultName;
+
+    @Autowired
+    public DiseaseDatasets(DatasetProperties datasetProperties, ObjectProvider<DiseaseService> diseaseServiceProvider,
+                           DiseaseProxy diseaseProxy, DiseaseRecordRepository diseaseRecordRepository,
+                           IngestionCheckpoints ingestionCheckpoints, DiseaseRollupService diseaseRollupService,
+                           PlatformTransactionManager transactionManager, SharedCacheTier sharedCacheTier,
+                           MeterRegistry meterRegistry,
+                           @Qualifier("datasetIngestExecutor") ExecutorService ingestExecutor,
+                           ForkJoinPool aggregationPool, BulletinUpdates bulletinUpdates,
+                           @Value("${infectious.disease.resource-id:}") String defaultResourceId,
+                           @Value("${data.fetch.cron:-}") String defaultCron,
+                           @Value("${data.snapshot.dir:${java.io.tmpdir}/infectious-disease-bulletin}") Path snapshotDir,
+                           @Value("${data.snapshot.enabled:true}") boolean snapshotEnabled,
+                           @Value("${data.cache.shared.ttl-ms:172800000}") long sharedTtlMs,
+                           @Value("${data.cache.local.max-entries:256}") int localMaxEntries,
+                           @Value("${data.cache.local.ttl-ms:600000}") long localTtlMs) {
+        this.ingestExecutor = ingestExecutor;
+        this.diseaseRecordRepository = diseaseRecordRepository;
+        this.diseaseRollupService = diseaseRollupService;
+
+        for (DiseaseDataset dataset : datasets(datasetProperties, defaultResourceId, defaultCron)) {
+            DiseaseAggregate diseaseAggregate = new DiseaseAggregate(aggregationPool);
+            bulletinUpdates.register(dataset.name(), diseaseAggregate);
+            DiseaseSnapshotStore diseaseSnapshotStore = new DiseaseSnapshotStore(diseaseAggregate, sharedCacheTier,
+                    dataset.name(), snapshotDir.resolve(dataset.name() + ".snapshot"), snapshotEnabled, sharedTtlMs);
+            services.put(dataset.name(), diseaseServiceProvider.getObject(dataset, diseaseProxy,
+                    diseaseRecordRepository, diseaseAggregate, new IngestionMetrics(meterRegistry, dataset.name()),
+                    ingestionCheckpoints, diseaseRollupService, diseaseSnapshotStore,
+                    new DiseaseQueryCache(localMaxEntries, localTtlMs), transactionManager));
+        }
+        this.defaultName = services.containsKey(DiseaseDataset.DEFAULT_NAME)
+                ? DiseaseDataset.DEFAULT_NAME : services.keySet().iterator().next();
+        LOG.info("Serving datasets " + services.keySet() + ", default " + defaultName);
+    }
+
+    // Before any dataset writes, so this year's records do not start out in the default partition. Replicas
+    // starting together are serialized by the partition function, any failure stops the startup.
+    @PostConstruct
+    public void createYearPartitions() {
+        try {
+            diseaseRecordRepository.createYearPartitions();
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while creating disease record partitions: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Without data.datasets, infectious.disease.resource-id and data.fetch.cron form the default dataset.
+    // Checkpoints are kept per upstream resource, so two datasets cannot mirror the same one.
+    static List<DiseaseDataset> datasets(DatasetProperties properties, String defaultResourceId, String defaultCron) {
+        List<DiseaseDataset> datasets = new ArrayList<>();
+        if (properties.getDatasets().isEmpty()) {
+            datasets.add(new DiseaseDataset(DiseaseDataset.DEFAULT_NAME, defaultResourceId, defaultCron));
+        }
+        properties.getDatasets().forEach((name, dataset) -> datasets.add(new DiseaseDataset(name,
+                dataset.getResourceId(), dataset.getCron() == null ? defaultCron : dataset.getCron())));
+
+        Set<String> resourceIds = new HashSet<>();
+        for (DiseaseDataset dataset : datasets) {
+            if (!resourceIds.add(dataset.resourceId())) {
+                throw new IllegalStateException("Resource " + dataset.resourceId() + " is used by more than one dataset");
+            }
+        }
+        return datasets;
+    }
+
+    public List<DiseaseDataset> getDatasets() {
+        return services.values().stream().map(DiseaseService::getDataset).toList();
+    }
+
+    // The default dataset when name is null
+    public Optional<DiseaseService> find(String name) {
+        return Optional.ofNullable(services.get(name == null ? defaultName : name));
+    }
+
+    // Queued on the ingest pool; a dataset that is already ingesting skips the run
+    public void fetchAsync(DiseaseService diseaseService, String trigger) {
+        String name = diseaseService.getDataset().name();
+        try {
+            ingestExecutor.execute(() -> {
+                LOG.info("Running " + trigger + " data fetch for " + name + "...");
+                diseaseService.fetchAllLatestDiseaseData();
+                LOG.info("Running " + trigger + " data fetch for " + name + "... (Finished)");
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.error("Error occurred while queueing data fetch for " + name + ": " + e.getMessage());
+        }
+    }
+
+    // "-" disables the schedule of a dataset, as it does for @Scheduled
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        for (DiseaseService diseaseService : services.values()) {
+            String cron = diseaseService.getDataset().cron();
+            if (cron == null || cron.isBlank() || ScheduledTaskRegistrar.CRON_DISABLED.equals(cron)) {
+                continue;
+            }
+            taskRegistrar.addCronTask(new CronTask(() -> fetchAsync(diseaseService, "scheduled"),
+                    new CronTrigger(cron, SCHEDULE_ZONE)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpDiseaseData() {
+        diseaseRollupService.backfillRollups(services.keySet());
+        services.values().forEach(DiseaseService::warmUpDiseaseData);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        services.values().forEach(DiseaseService::shutdown);
+    }
+
+}
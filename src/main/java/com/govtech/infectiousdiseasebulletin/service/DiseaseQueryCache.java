@@ -0,0 +1,70 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Local tier for filtered bulletin queries: results keyed by (data version, query), bounded by entry count
+ * (least recently used goes first) and by age. A new data version is a new key, so nothing is ever evicted
+ * to stay correct, only to stay small. One instance per dataset.
+ */
+public class DiseaseQueryCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    // Guarded by this; access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public DiseaseQueryCache(int maxEntries, long ttlMs) {
+        this(maxEntries, Duration.ofMillis(ttlMs), System::nanoTime);
+    }
+
+    DiseaseQueryCache(int maxEntries, Duration ttl, LongSupplier nanoTime) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    // Computed outside the lock, so a slow query does not hold up the others; concurrent misses may both compute
+    public Map<String, Map<String, List<String>>> get(String version, DiseaseQuery query,
+                                                      Supplier<Map<String, Map<String, List<String>>>> loader) {
+        Key key = new Key(version, query);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && nanoTime.getAsLong() - entry.createdNanos() < ttlNanos) {
+                return entry.value();
+            }
+        }
+
+        Map<String, Map<String, List<String>>> value = loader.get();
+        synchronized (this) {
+            entries.put(key, new Entry(value, nanoTime.getAsLong()));
+            while (entries.size() > maxEntries) {
+                entries.pollFirstEntry();
+            }
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private record Key(String version, DiseaseQuery query) {
+    }
+
+    private record Entry(Map<String, Map<String, List<String>>> value, long createdNanos) {
+    }
+}
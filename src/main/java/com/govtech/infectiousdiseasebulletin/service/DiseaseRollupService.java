@@ -0,0 +1,106 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseYear;
+import com.govtech.infectiousdiseasebulletin.data.RollupRow;
+import com.govtech.infectiousdiseasebulletin.data.YearlyTrend;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRollup;
+import com.govtech.infectiousdiseasebulletin.model.RollupGranularity;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordRepository;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Pre-aggregated case counts per disease and epi-week bucket (see RollupGranularity). Ingestion refreshes the
+ * (disease, year) cells each batch touched, in the batch's own transaction, so trend queries read a few hundred
+ * rollup rows instead of scanning disease_records.
+ */
+@Service
+public class DiseaseRollupService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiseaseRollupService.class);
+
+    private final DiseaseRollupRepository diseaseRollupRepository;
+    private final DiseaseRecordRepository diseaseRecordRepository;
+    private final ExecutorService ingestExecutor;
+
+    @Autowired
+    public DiseaseRollupService(DiseaseRollupRepository diseaseRollupRepository,
+                                DiseaseRecordRepository diseaseRecordRepository,
+                                @Qualifier("datasetIngestExecutor") ExecutorService ingestExecutor) {
+        this.diseaseRollupRepository = diseaseRollupRepository;
+        this.diseaseRecordRepository = diseaseRecordRepository;
+        this.ingestExecutor = ingestExecutor;
+    }
+
+    public void refresh(String dataset, Collection<DiseaseYear> touched) {
+        diseaseRollupRepository.refresh(dataset, touched);
+    }
+
+    // Datasets ingested before rollups existed get them computed once, in the background. Each dataset queues on
+    // the ingest pool like a dataset pull, so it does not hold up startup and competes with ingest for the database
+    // fairly
+    public void backfillRollups(Collection<String> datasets) {
+        datasets.forEach(dataset -> ingestExecutor.execute(() -> {
+            try {
+                if (diseaseRollupRepository.existsByDataset(dataset) || !diseaseRecordRepository.existsByDataset(dataset)) {
+                    return;
+                }
+                LOG.info("Backfilling disease rollups of " + dataset + "...");
+                int rows = diseaseRollupRepository.refreshAll(dataset);
+                LOG.info("Backfilling disease rollups of " + dataset + "... (Finished, " + rows + " rows)");
+            } catch (Exception e) {
+                LOG.error("Error occurred while backfilling disease rollups of " + dataset + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    @Transactional(readOnly = true)
+    public List<RollupRow> getRollups(String dataset, RollupGranularity granularity, DiseaseQuery query) {
+        return find(dataset, granularity, query.disease(), query.firstYear(), query.lastYear()).stream()
+                .map(rollup -> new RollupRow(rollup.getDisease(), rollup.getEpiYear(), rollup.getGranularity().name(),
+                        rollup.getBucket(), rollup.getTotalCases(), rollup.getWeeksWithCases()))
+                .toList();
+    }
+
+    // Yearly totals in disease, year order, each compared with the disease's previous year
+    @Transactional(readOnly = true)
+    public List<YearlyTrend> getYearlyTrend(String dataset, DiseaseQuery query) {
+        // Read one extra year so the first requested year has something to compare against
+        int lookbackYear = query.fromYear() == null ? query.firstYear() : query.fromYear() - 1;
+        List<YearlyTrend> trend = new ArrayList<>();
+        DiseaseRollup previous = null;
+        for (DiseaseRollup year : find(dataset, RollupGranularity.YEAR, query.disease(), lookbackYear, query.lastYear())) {
+            boolean consecutive = previous != null && previous.getDisease().equals(year.getDisease())
+                    && previous.getEpiYear() + 1 == year.getEpiYear();
+            if (year.getEpiYear() >= query.firstYear()) {
+                Long change = consecutive ? year.getTotalCases() - previous.getTotalCases() : null;
+                Double percentChange = consecutive && previous.getTotalCases() > 0
+                        ? Math.round(change * 1000.0 / previous.getTotalCases()) / 10.0
+                        : null;
+                trend.add(new YearlyTrend(year.getDisease(), year.getEpiYear(), year.getTotalCases(), change, percentChange));
+            }
+            previous = year;
+        }
+        return trend;
+    }
+
+    private List<DiseaseRollup> find(String dataset, RollupGranularity granularity, String disease,
+                                     int firstYear, int lastYear) {
+        return disease == null
+                ? diseaseRollupRepository.findByDatasetAndGranularityAndEpiYearBetweenOrderByDiseaseAscEpiYearAscBucketAsc(
+                        dataset, granularity, firstYear, lastYear)
+                : diseaseRollupRepository.findByDatasetAndGranularityAndDiseaseAndEpiYearBetweenOrderByEpiYearAscBucketAsc(
+                        dataset, granularity, disease, firstYear, lastYear);
+    }
+}
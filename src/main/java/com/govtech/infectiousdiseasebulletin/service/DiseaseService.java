@@ -1,215 +1,693 @@
 package com.govtech.infectiousdiseasebulletin.service;
 
+import com.govtech.infectiousdiseasebulletin.data.BulletinCursor;
+import com.govtech.infectiousdiseasebulletin.data.BulletinPage;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import com.govtech.infectiousdiseasebulletin.data.DatastoreSearchPage;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
 import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseYear;
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
 import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
+import com.govtech.infectiousdiseasebulletin.proxy.DatastoreSearchParser;
 import com.govtech.infectiousdiseasebulletin.proxy.DiseaseProxy;
 import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordRepository;
-import io.micrometer.common.util.StringUtils;
+import feign.Response;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
+/**
+ * Ingestion and bulletin of one dataset. Created per dataset by DiseaseDatasets, which also owns the schedule.
+ */
 @Service
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class DiseaseService {
 
     private static final Logger LOG = LoggerFactory.getLogger(DiseaseService.class);
 
+    private final DiseaseDataset dataset;
+    private final String resourceId;
     private final DiseaseProxy diseaseProxy;
     private final DiseaseRecordRepository diseaseRecordRepository;
+    private final DiseaseAggregate diseaseAggregate;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionCheckpoints ingestionCheckpoints;
+    private final DiseaseRollupService diseaseRollupService;
+    private final DiseaseSnapshotStore diseaseSnapshotStore;
+    private final DiseaseQueryCache diseaseQueryCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
 
-    private final String LIMIT_STRING = "10000";
-    private final Long LIMIT = 10000L;
+    private final AtomicBoolean ingestionRunning = new AtomicBoolean(false);
 
-    @Value("${infectious.disease.resource-id}")
-    private String resourceId;
+    // At most one rebuild of the aggregate runs at a time, concurrent callers share it
+    private final AtomicReference<CompletableFuture<DiseaseAggregate.Snapshot>> inFlightRefresh = new AtomicReference<>();
+    private final ExecutorService refreshExecutor;
 
-    @Autowired
-    public DiseaseService(DiseaseProxy diseaseProxy, DiseaseRecordRepository diseaseRecordRepository) {
+    static final String WRITE_MODE_JPA = "jpa";
+    static final String WRITE_MODE_BATCH = "batch";
+    static final String WRITE_MODE_COPY = "copy";
+
+    private final DatastoreSearchParser datastoreSearchParser = new DatastoreSearchParser();
+
+    @Value("${data.fetch.page-size:10000}")
+    private long pageSize = 10000L;
+
+    @Value("${data.fetch.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${data.fetch.write-mode:jpa}")
+    private String writeMode = WRITE_MODE_JPA;
+
+    @Value("${data.fetch.pipeline.enabled:false}")
+    private boolean pipelineEnabled;
+
+    @Value("${data.fetch.pipeline.max-in-flight:4}")
+    private int pipelineMaxInFlight = 4;
+
+    @Value("${data.fetch.pipeline.queue-capacity:8}")
+    private int pipelineQueueCapacity = 8;
+
+    // Same switch that moves Tomcat and the dataset ingest pool onto virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    // The cache region of the dataset (aggregate, snapshot store, query cache) and its metrics are passed in
+    public DiseaseService(DiseaseDataset dataset, DiseaseProxy diseaseProxy, DiseaseRecordRepository diseaseRecordRepository,
+                          DiseaseAggregate diseaseAggregate, IngestionMetrics ingestionMetrics,
+                          IngestionCheckpoints ingestionCheckpoints, DiseaseRollupService diseaseRollupService,
+                          DiseaseSnapshotStore diseaseSnapshotStore, DiseaseQueryCache diseaseQueryCache,
+                          PlatformTransactionManager transactionManager) {
+        this.dataset = dataset;
+        this.resourceId = dataset.resourceId();
         this.diseaseProxy = diseaseProxy;
         this.diseaseRecordRepository = diseaseRecordRepository;
+        this.diseaseAggregate = diseaseAggregate;
+        this.ingestionMetrics = ingestionMetrics;
+        this.ingestionCheckpoints = ingestionCheckpoints;
+        this.diseaseRollupService = diseaseRollupService;
+        this.diseaseSnapshotStore = diseaseSnapshotStore;
+        this.diseaseQueryCache = diseaseQueryCache;
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disease-data-refresh-" + dataset.name());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // A page and the checkpoint that covers it are committed together
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
     public DiseaseDTO fetchDiseaseData(String offset, String limit) {
+        return ingestionMetrics.pageFetch().record(() -> diseaseProxy.fetchDiseaseRecord(queryParams(offset, limit)).orElse(null));
+    }
+
+    private Map<String, Object> queryParams(String offset, String limit) {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("resource_id", resourceId);
         params.put("limit", limit);
         params.put("offset", offset);
-        return diseaseProxy.fetchDiseaseRecord(params).orElse(null);
+        return params;
     }
 
-    @Async
-    public void fetchAllLatestDiseaseDataAsync() {
-        LOG.info("Running on-demand data fetch...");
-        fetchAllLatestDiseaseData();
-        LOG.info("Running on-demand data fetch... (Finished)");
+    public DiseaseDataset getDataset() {
+        return dataset;
     }
 
-    @CacheEvict(value = {"diseaseData"}, allEntries = true)
+    // Prototype beans get no destroy callback, so DiseaseDatasets calls this when the context closes
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // The current data keeps being served until the rebuilt aggregate is swapped in
     public void invalidateDiseaseData() {
         LOG.info("Invalidating disease data cache...");
+        refreshDiseaseData();
+    }
+
+    public CompletableFuture<DiseaseAggregate.Snapshot> refreshDiseaseData() {
+        return refreshDiseaseData(false);
+    }
+
+    // With fromSnapshot, the aggregate is first restored from the snapshot on disk or in the shared tier and the
+    // table is only scanned when no snapshot matches the ingest watermark
+    private CompletableFuture<DiseaseAggregate.Snapshot> refreshDiseaseData(boolean fromSnapshot) {
+        while (true) {
+            CompletableFuture<DiseaseAggregate.Snapshot> running = inFlightRefresh.get();
+            if (running != null) {
+                return running;
+            }
+
+            CompletableFuture<DiseaseAggregate.Snapshot> refresh = new CompletableFuture<>();
+            if (!inFlightRefresh.compareAndSet(null, refresh)) {
+                continue;
+            }
+            refreshExecutor.execute(() -> {
+                DiseaseAggregate.Snapshot snapshot = null;
+                Throwable failure = null;
+                long startNanos = System.nanoTime();
+                try {
+                    if (fromSnapshot && diseaseSnapshotStore.restore(this::currentWatermark)) {
+                        snapshot = diseaseAggregate.versionedSnapshot();
+                    } else {
+                        LOG.info("Rebuilding disease data...");
+                        // Read before the scan, so the snapshot is never tagged newer than the data it holds
+                        IngestionState watermark = currentWatermark();
+                        snapshot = readOnlyTransaction.execute(status -> {
+                            try (Stream<DiseaseRecord> stream = diseaseRecordRepository.streamAll(dataset.name())) {
+                                diseaseAggregate.load(stream, watermarkKey(watermark));
+                            }
+                            return diseaseAggregate.versionedSnapshot();
+                        });
+                        diseaseSnapshotStore.save(watermark);
+                    }
+                } catch (Throwable e) {
+                    LOG.error("Error occurred while rebuilding disease data: " + e.getMessage());
+                    failure = e;
+                }
+                ingestionMetrics.rebuilt(startNanos, failure == null);
+
+                // Cleared before completing, so a caller woken by this build can always start a new one
+                inFlightRefresh.compareAndSet(refresh, null);
+                if (failure == null) {
+                    refresh.complete(snapshot);
+                } else {
+                    refresh.completeExceptionally(failure);
+                }
+            });
+            return refresh;
+        }
     }
 
     public void fetchAllLatestDiseaseData() {
-        invalidateDiseaseData();
-        Long maxDiseaseId = diseaseRecordRepository.findMaxDiseaseId();
-        Long initialOffset;
-        if (maxDiseaseId == null) {
-            initialOffset = 0L;
-        } else {
-            initialOffset = maxDiseaseId;
+        runExclusively("Data fetch", () -> {
+            // A long-running instance crosses into a new year, its records should not start out in the default partition
+            createYearPartitions();
+            try {
+                fetchAllLatestDiseaseDataExclusively();
+            } finally {
+                // Years this run wrote for the first time went to the default partition
+                createYearPartitions();
+                // Every committed page has been merged by now, the snapshot matches the checkpoint it is tagged with
+                diseaseSnapshotStore.save(currentWatermark());
+                ingestionMetrics.runFinished();
+            }
+        });
+    }
+
+    private void createYearPartitions() {
+        try {
+            diseaseRecordRepository.createYearPartitions();
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while creating disease record partitions: " + e.getMessage());
         }
+    }
 
-        while (true) {
+    // The scheduler and /pull-async may overlap and every replica runs the same schedule; only one of them gets to
+    // write the resource at a time, the others skip the run
+    private void runExclusively(String task, Runnable work) {
+        if (!ingestionRunning.compareAndSet(false, true)) {
+            LOG.info(task + " already in progress, skipping.");
+            return;
+        }
+        try {
+            Optional<IngestionCheckpoints.Lock> lock;
             try {
-                // Fetch data from the API using the current offset and limit
-                DiseaseDTO response = fetchDiseaseData(initialOffset.toString(), LIMIT_STRING);
+                lock = ingestionCheckpoints.tryLock(resourceId);
+            } catch (RuntimeException e) {
+                LOG.error("Error occurred while locking " + resourceId + ": " + e.getMessage());
+                return;
+            }
+            if (lock.isEmpty()) {
+                LOG.info(task + " already in progress on another replica, skipping.");
+                return;
+            }
+            try (IngestionCheckpoints.Lock held = lock.get()) {
+                work.run();
+            }
+        } finally {
+            ingestionRunning.set(false);
+        }
+    }
 
-                // Break the loop if the response is null or not successful
-                if (response == null) {
-                    LOG.error("Error: No response from API.");
+    private void fetchAllLatestDiseaseDataExclusively() {
+        Long initialOffset = resumeOffset();
+        ingestionMetrics.runStarted(initialOffset);
+
+        // Streaming persists each page while it is being read, so it always runs page by page
+        if (pipelineEnabled && !streamingEnabled) {
+            fetchAllPipelined(initialOffset);
+            return;
+        }
+
+        while (true) {
+            try {
+                // Fetch data from the API using the current offset and limit, and
+                // break the loop if the response is null, not successful or empty
+                SavedPage saved = streamingEnabled
+                        ? fetchAndSaveStreamedPage(initialOffset)
+                        : savePage(fetchDiseaseData(initialOffset.toString(), Long.toString(pageSize)), initialOffset);
+                if (saved == null) {
                     break;
                 }
 
-                if (!response.isSuccess()) {
-                    LOG.error("Error: API response was not successful. Stopping the data fetch.");
+                // Move past the records that were actually returned, the last page is usually shorter
+                initialOffset += saved.records();
+
+                LOG.info("Fetched and saved data for offset: " + initialOffset);
+
+                if (saved.isLast(initialOffset)) {
+                    LOG.info("No more records to fetch.");
                     break;
                 }
 
-                if (response.getResult().getRecords().isEmpty()) {
-                    LOG.info("No more records to fetch.");
+            } catch (Exception e) {
+                // Handle any exceptions thrown during the API call or data processing
+                fetchFailed("Error occurred while fetching data: " + e.getMessage());
+                break; // Exit the loop in case of an exception
+            }
+
+        }
+    }
+
+    // The checkpoint is the exact upstream offset after the last committed page
+    private Long resumeOffset() {
+        Optional<IngestionState> state = ingestionCheckpoints.find(resourceId);
+        // No checkpoint yet, e.g. a table filled before checkpoints existed: _ids are not offsets, so start over,
+        // the upsert leaves the rows that are already there untouched
+        return state.map(IngestionState::getLastOffset).orElse(0L);
+    }
+
+    // Fetches the first page to learn the upstream total, then fetches every remaining page concurrently while
+    // the calling thread persists them strictly in offset order, so a failed page still stops the run at that point
+    private void fetchAllPipelined(Long initialOffset) {
+        SavedPage firstPage;
+        try {
+            firstPage = savePage(fetchDiseaseData(initialOffset.toString(), Long.toString(pageSize)), initialOffset);
+            if (firstPage == null) {
+                return;
+            }
+        } catch (Exception e) {
+            fetchFailed("Error occurred while fetching data: " + e.getMessage());
+            return;
+        }
+        Long nextOffset = initialOffset + firstPage.records();
+        LOG.info("Fetched and saved data for offset: " + nextOffset);
+
+        long total = firstPage.total();
+        Deque<Long> plannedOffsets = new ArrayDeque<>();
+        for (long offset = nextOffset; offset < total; offset += pageSize) {
+            plannedOffsets.add(offset);
+        }
+        if (plannedOffsets.isEmpty()) {
+            LOG.info("No more records to fetch.");
+            return;
+        }
+        LOG.info("Pipelined fetch of " + plannedOffsets.size() + " pages, upstream total: " + total);
+
+        // With virtual threads every page in the window gets its own thread and the semaphore keeps the requests
+        // at max-in-flight, like the platform pool's size does
+        ExecutorService fetchExecutor = virtualThreadsEnabled
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(pipelineMaxInFlight);
+        Semaphore inFlight = new Semaphore(pipelineMaxInFlight);
+        // Bounded hand-off between the fetch stage and the persistence stage, in offset order
+        Deque<Future<DiseaseDTO>> pages = new ArrayDeque<>(pipelineQueueCapacity);
+        try {
+            while (!plannedOffsets.isEmpty() || !pages.isEmpty()) {
+                while (!plannedOffsets.isEmpty() && pages.size() < pipelineQueueCapacity) {
+                    String offset = plannedOffsets.poll().toString();
+                    pages.add(fetchExecutor.submit(() -> {
+                        inFlight.acquire();
+                        try {
+                            return fetchDiseaseData(offset, Long.toString(pageSize));
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                }
+
+                try {
+                    SavedPage saved = savePage(pages.poll().get(), nextOffset);
+                    if (saved == null) {
+                        break;
+                    }
+                    nextOffset += saved.records();
+                    LOG.info("Fetched and saved data for offset: " + nextOffset);
+
+                    // The pages in flight were planned at full page strides, a short page in between would leave a gap
+                    if (saved.records() < pageSize && !saved.isLast(nextOffset)) {
+                        LOG.info("Short page at offset " + nextOffset + ", the next run resumes from here.");
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fetchFailed("Interrupted while fetching data.");
+                    break;
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    fetchFailed("Error occurred while fetching data: " + cause.getMessage());
                     break;
                 }
+            }
+        } finally {
+            pages.forEach(page -> page.cancel(true));
+            fetchExecutor.shutdownNow();
+        }
+    }
 
-                // Save the fetched data
-                saveDiseaseData(response.getResult().getRecords());
+    // Returns null when the page ends the run, either because of an error or because there is nothing left to fetch
+    private SavedPage savePage(DiseaseDTO response, long offset) {
+        if (response == null) {
+            fetchFailed("Error: No response from API.");
+            return null;
+        }
 
-                // Increment the offset by 10,000 for the next loop iteration
-                initialOffset += LIMIT;
+        if (!response.isSuccess()) {
+            fetchFailed("Error: API response was not successful. Stopping the data fetch.");
+            return null;
+        }
 
-                LOG.info("Fetched and saved data for offset: " + initialOffset);
+        if (response.getResult().getRecords().isEmpty()) {
+            LOG.info("No more records to fetch.");
+            return null;
+        }
 
-            } catch (Exception e) {
-                // Handle any exceptions thrown during the API call or data processing
-                LOG.error("Error occurred while fetching data: " + e.getMessage());
-                break; // Exit the loop in case of an exception
+        // Save the fetched data together with its checkpoint
+        List<DiseaseDTO.Disease> records = response.getResult().getRecords();
+        IngestionCheckpoints.Checksum checksum = new IngestionCheckpoints.Checksum();
+        records.forEach(disease -> checksum.accept(DiseaseCase.of(disease)));
+        ingestionMetrics.pageCommit().record(() -> writeTransaction.executeWithoutResult(status -> {
+            DiseaseAggregate.Delta delta = writeDiseaseData(records);
+            IngestionState watermark = ingestionCheckpoints.pageCommitted(resourceId, offset,
+                    response.getResult().getTotal(), checksum);
+            afterCommit(() -> diseaseAggregate.merge(delta, watermarkKey(watermark)));
+        }));
+        ingestionMetrics.pageCompleted(records.size(), offset + records.size());
+        return new SavedPage(records.size(), response.getResult().getTotal());
+    }
+
+    // Reads the page with the streaming decoder and copies each record into the table as it is decoded
+    private SavedPage fetchAndSaveStreamedPage(Long offset) throws IOException {
+        Map<String, Object> params = queryParams(offset.toString(), Long.toString(pageSize));
+        try (Response response = ingestionMetrics.pageFetch().record(() -> diseaseProxy.streamDiseaseRecord(params))) {
+            if (response == null || response.body() == null) {
+                fetchFailed("Error: No response from API.");
+                return null;
             }
 
+            if (response.status() != 200) {
+                fetchFailed("Error: API responded with status " + response.status() + ". Stopping the data fetch.");
+                return null;
+            }
+
+            DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+            IngestionCheckpoints.Checksum checksum = new IngestionCheckpoints.Checksum();
+            Set<DiseaseYear> touched = new HashSet<>();
+            AtomicReference<DatastoreSearchPage> page = new AtomicReference<>();
+            // Decoding happens while the records are copied, so it is timed as part of the commit
+            Timer.Sample commit = Timer.start();
+            try (InputStream body = response.body().asInputStream()) {
+                writeTransaction.executeWithoutResult(status -> {
+                    diseaseRecordRepository.lockDatasetWrites(dataset.name());
+                    diseaseRecordRepository.copyUpsertStream(dataset.name(), sink ->
+                            page.set(datastoreSearchParser.parse(body, sink.andThen(delta::add).andThen(checksum)
+                                    .andThen(diseaseCase -> touch(touched, diseaseCase)))),
+                            previous -> moved(delta, touched, previous));
+                    if (!page.get().success()) {
+                        // The records were copied before the page said it failed, like the DTO path it writes nothing
+                        status.setRollbackOnly();
+                        return;
+                    }
+                    if (page.get().records() > 0) {
+                        diseaseRollupService.refresh(dataset.name(), touched);
+                        IngestionState watermark = ingestionCheckpoints.pageCommitted(resourceId, offset,
+                                page.get().total(), checksum);
+                        afterCommit(() -> diseaseAggregate.merge(delta, watermarkKey(watermark)));
+                    }
+                });
+            }
+            commit.stop(ingestionMetrics.pageCommit());
+
+            if (!page.get().success()) {
+                fetchFailed("Error: API response was not successful. Stopping the data fetch.");
+                return null;
+            }
+
+            if (page.get().records() == 0) {
+                LOG.info("No more records to fetch.");
+                return null;
+            }
+
+            ingestionMetrics.pageCompleted(page.get().records(), offset + page.get().records());
+            return new SavedPage(page.get().records(), page.get().total());
+        }
+    }
+
+    // Records written for one page, and the upstream total it reported (0 if the response carried none)
+    private record SavedPage(int records, long total) {
+
+        private boolean isLast(long nextOffset) {
+            return total > 0 && nextOffset >= total;
         }
     }
 
+    private void fetchFailed(String message) {
+        LOG.error(message);
+        ingestionMetrics.error(message);
+    }
+
+    public IngestionStatus getIngestionStatus() {
+        return ingestionMetrics.status();
+    }
+
     @Transactional
     public void saveDiseaseData(List<DiseaseDTO.Disease> diseaseList) {
-        List<DiseaseRecord> diseaseRecordList = new ArrayList<DiseaseRecord>();
-        if (!diseaseList.isEmpty()) {
-            diseaseList.forEach(disease -> {
-                DiseaseRecord diseaseRecord = new DiseaseRecord();
-                diseaseRecord.setDiseaseId(disease.getId());
-                diseaseRecord.setDisease(disease.getDisease());
-                if (!StringUtils.isEmpty(disease.getEpiWeek())) {
-                    String[] epiData = disease.getEpiWeek().split("-");
-                    diseaseRecord.setEpiWeek(epiData[1]);
-                    diseaseRecord.setEpiYear(epiData[0]);
-                }
-                diseaseRecord.setNumberOfCases(Long.valueOf(disease.getNumberOfCases()));
-                diseaseRecordList.add(diseaseRecord);
-            });
-            diseaseRecordRepository.saveAll(diseaseRecordList);
+        DiseaseAggregate.Delta delta = writeDiseaseData(diseaseList);
+        afterCommit(() -> diseaseAggregate.merge(delta));
+    }
+
+    // Writes the batch and refreshes its rollups, the caller merges the returned delta once the batch is committed
+    private DiseaseAggregate.Delta writeDiseaseData(List<DiseaseDTO.Disease> diseaseList) {
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        if (diseaseList.isEmpty()) {
+            return delta;
+        }
+
+        Set<DiseaseYear> touched = new HashSet<>();
+        // The JPA path reads the existing rows before it saves, another writer must not insert the same ids meanwhile
+        diseaseRecordRepository.lockDatasetWrites(dataset.name());
+        switch (writeMode) {
+            case WRITE_MODE_COPY -> {
+                diseaseRecordRepository.copyUpsert(dataset.name(), diseaseList,
+                        previous -> moved(delta, touched, previous));
+                diseaseList.forEach(disease -> delta.add(DiseaseCase.of(disease)));
+            }
+            case WRITE_MODE_BATCH -> {
+                diseaseRecordRepository.batchUpsert(dataset.name(), diseaseList,
+                        previous -> moved(delta, touched, previous));
+                diseaseList.forEach(disease -> delta.add(DiseaseCase.of(disease)));
+            }
+            default -> {
+                // Update rows that were already ingested instead of inserting duplicates
+                Map<Long, DiseaseRecord> existingRecords = new HashMap<>();
+                diseaseRecordRepository.findByDatasetAndDiseaseIdIn(dataset.name(),
+                                diseaseList.stream().map(DiseaseDTO.Disease::getId).toList())
+                        .forEach(record -> existingRecords.put(record.getDiseaseId(), record));
+
+                List<DiseaseRecord> diseaseRecordList = new ArrayList<DiseaseRecord>();
+                diseaseList.forEach(disease -> {
+                    DiseaseRecord diseaseRecord = existingRecords.getOrDefault(disease.getId(), new DiseaseRecord());
+                    if (diseaseRecord.getId() != null) {
+                        removeIfMoved(delta, touched, diseaseRecord, DiseaseCase.of(disease));
+                    }
+                    diseaseRecord.setDataset(dataset.name());
+                    diseaseRecordList.add(toDiseaseRecord(disease, diseaseRecord));
+                });
+                diseaseRecordRepository.saveAll(diseaseRecordList);
+                // The rollup refresh reads the table with plain SQL, so pending updates must reach it first
+                diseaseRecordRepository.flush();
+                diseaseRecordList.forEach(delta::add);
+            }
+        }
+
+        diseaseList.forEach(disease -> touch(touched, DiseaseCase.of(disease)));
+        diseaseRollupService.refresh(dataset.name(), touched);
+        return delta;
+    }
+
+    private static void touch(Set<DiseaseYear> touched, DiseaseCase diseaseCase) {
+        if (diseaseCase.disease() != null && diseaseCase.hasEpiWeek()) {
+            touched.add(new DiseaseYear(diseaseCase.disease(), diseaseCase.epiYear()));
         }
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "diseaseData", unless = "#result == null || #result.isEmpty()")
+    static DiseaseRecord toDiseaseRecord(DiseaseDTO.Disease disease, DiseaseRecord diseaseRecord) {
+        diseaseRecord.setDiseaseId(disease.getId());
+        diseaseRecord.setDisease(disease.getDisease());
+        DiseaseCase diseaseCase = DiseaseCase.of(disease);
+        diseaseRecord.setEpiYear(diseaseCase.epiYear());
+        diseaseRecord.setEpiWeek(diseaseCase.epiWeek());
+        diseaseRecord.setNumberOfCases(diseaseCase.numberOfCases());
+        return diseaseRecord;
+    }
+
+    // Only fold a batch into the aggregate once it is visible to other readers of the table
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     public Map<String, Map<String, List<String>>> getProcessedDiseaseData() {
-        LOG.info("Cache miss... Re-retrieving disease data");
-        try (Stream<DiseaseRecord> stream = diseaseRecordRepository.streamAll()) {
-            // Filter, group, and sort the data
-            Map<String, Map<String, List<DiseaseRecord>>> processedData = stream
-                    .filter(record -> record.getNumberOfCases() > 0) // Exclude records with zero cases
-                    .collect(Collectors.groupingBy(
-                            DiseaseRecord::getDisease, // Group by disease name
-                            TreeMap::new, // Maintain sorted order by disease name
-                            Collectors.groupingBy(
-                                    DiseaseRecord::getEpiYear, // Group by epi_year within each disease
-                                    TreeMap::new, // Maintain sorted order by epi_year
-                                    Collectors.toList()
-                            )
-                    ));
-
-            // Process each group to generate continuous ranges with case counts
-            Map<String, Map<String, List<String>>> result = new TreeMap<>();
-            for (String disease : processedData.keySet()) {
-                Map<String, List<String>> yearData = new TreeMap<>();
-                for (String year : processedData.get(disease).keySet()) {
-                    List<DiseaseRecord> records = processedData.get(disease).get(year);
-                    List<String> ranges = getContinuousRangesWithCases(records);
-                    yearData.put(year, ranges);
-                }
-                result.put(disease, yearData);
+        return getProcessedDiseaseSnapshot().data();
+    }
+
+    public DiseaseAggregate.Snapshot getProcessedDiseaseSnapshot() {
+        if (!diseaseAggregate.isLoaded()) {
+            // Nothing to serve yet, wait for the single in-flight build instead of scanning the table again
+            LOG.info("Cache miss... Re-retrieving disease data");
+            ingestionMetrics.cacheMiss();
+            return refreshDiseaseData().join();
+        }
+        ingestionMetrics.cacheHit();
+        return diseaseAggregate.versionedSnapshot();
+    }
+
+    // Only the cold path reads the table, so only it holds a connection
+    public Map<String, Map<String, List<String>>> getProcessedDiseaseData(DiseaseQuery query) {
+        if (query.isUnfiltered()) {
+            return getProcessedDiseaseData();
+        }
+        if (diseaseAggregate.isLoaded()) {
+            ingestionMetrics.cacheHit();
+            String version = diseaseAggregate.versionedSnapshot().version();
+            return diseaseQueryCache.get(version, query, () -> diseaseAggregate.query(query));
+        }
+        ingestionMetrics.cacheMiss();
+
+        // Not loaded yet, only read the rows the filter selects instead of the whole table
+        // Week 0, the records without an epi week, is always outside the week bounds
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<DiseaseRecord> stream = query.disease() != null
+                    ? diseaseRecordRepository.streamByDisease(dataset.name(), query.disease(), query.firstYear(),
+                            query.lastYear(), query.firstWeek(), query.lastWeek())
+                    : diseaseRecordRepository.streamByYears(dataset.name(), query.firstYear(), query.lastYear(),
+                            query.firstWeek(), query.lastWeek())) {
+                DiseaseAggregate filtered = new DiseaseAggregate();
+                filtered.load(stream);
+                return filtered.snapshot();
             }
+        });
+    }
+
+    // Loads the aggregate if needed; a week window is cut together with the version it is labelled with
+    private DiseaseAggregate.Snapshot getBulletinSnapshot(DiseaseQuery query) {
+        DiseaseAggregate.Snapshot snapshot = getProcessedDiseaseSnapshot();
+        return query.coversAllWeeks() ? snapshot : diseaseAggregate.versionedSnapshot(query);
+    }
 
-            return result;
+    // Rows of the published snapshot in (disease, year) order, for writing straight to the response
+    public Stream<BulletinRow> streamBulletinRows(DiseaseQuery query) {
+        return diseaseAggregate.rows(getBulletinSnapshot(query), query, null);
+    }
+
+    // One page of rows after the cursor. One extra row is read to know whether another page follows.
+    public BulletinPage getBulletinPage(DiseaseQuery query, BulletinCursor after, int limit) {
+        DiseaseAggregate.Snapshot snapshot = getBulletinSnapshot(query);
+        List<BulletinRow> rows;
+        try (Stream<BulletinRow> stream = diseaseAggregate.rows(snapshot, query, after)) {
+            rows = stream.limit(limit + 1L).toList();
         }
+        if (rows.size() <= limit) {
+            return new BulletinPage(snapshot.version(), rows, null);
+        }
+        rows = rows.subList(0, limit);
+        return new BulletinPage(snapshot.version(), rows, BulletinCursor.after(rows.get(limit - 1)).encode());
     }
 
-    // Updated helper method to find continuous week ranges and calculate total cases
-    private List<String> getContinuousRangesWithCases(List<DiseaseRecord> records) {
-        // Convert to a list of week numbers and keep a mapping of week to cases
-        List<Integer> weekNumbers = records.stream()
-                .map(record -> Integer.parseInt(record.getEpiWeek().substring(1))) // Convert "W01" to 1, "W08" to 8, etc.
-                .sorted()
-                .collect(Collectors.toList());
+    // The cell a record moved out of loses its cases in the aggregate and its rollups are recomputed
+    private static void moved(DiseaseAggregate.Delta delta, Set<DiseaseYear> touched, DiseaseCase previous) {
+        delta.remove(previous);
+        touch(touched, previous);
+    }
 
-        Map<Integer, Long> weekToCasesMap = records.stream()
-                .collect(Collectors.toMap(
-                        record -> Integer.parseInt(record.getEpiWeek().substring(1)), // Key is the week number
-                        DiseaseRecord::getNumberOfCases // Value is the number of cases
-                ));
+    // The existing row is about to be overwritten with a record for another cell
+    private static void removeIfMoved(DiseaseAggregate.Delta delta, Set<DiseaseYear> touched, DiseaseRecord existing,
+                                      DiseaseCase incoming) {
+        DiseaseCase previous = new DiseaseCase(existing.getDiseaseId(), existing.getDisease(),
+                existing.getEpiYear() == null ? 0 : existing.getEpiYear(),
+                existing.getEpiWeek() == null ? 0 : existing.getEpiWeek(),
+                existing.getNumberOfCases() == null ? 0 : existing.getNumberOfCases());
+        if (!Objects.equals(previous.disease(), incoming.disease()) || previous.epiYear() != incoming.epiYear()
+                || previous.epiWeek() != incoming.epiWeek()) {
+            moved(delta, touched, previous);
+        }
+    }
 
-        List<String> ranges = new ArrayList<>();
-        int start = weekNumbers.get(0);
-        int prev = start;
-        long totalCases = weekToCasesMap.get(start);
+    private static String watermarkKey(IngestionState watermark) {
+        return watermark == null ? null : DiseaseSnapshotStore.key(watermark);
+    }
 
-        for (int i = 1; i < weekNumbers.size(); i++) {
-            int current = weekNumbers.get(i);
-            if (current != prev + 1) { // If there's a gap, process the range
-                if (start == prev) {
-                    ranges.add("W" + String.format("%02d", start) + "," + totalCases); // Single week with cases
-                } else {
-                    ranges.add("W" + String.format("%02d", start) + "-W" + String.format("%02d", prev) + "," + totalCases); // Range of weeks with total cases
-                }
-                start = current;
-                totalCases = 0;
-            }
-            totalCases += weekToCasesMap.get(current); // Accumulate the cases
-            prev = current;
+    private IngestionState currentWatermark() {
+        try {
+            return ingestionCheckpoints.find(resourceId).orElse(null);
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while reading the ingest watermark: " + e.getMessage());
+            return null;
         }
+    }
 
-        // Add the last range
-        if (start == prev) {
-            ranges.add("W" + String.format("%02d", start) + "," + totalCases);
+    // Another replica ingested or rebuilt: reload once from the snapshot it shared. A reload already running may
+    // have started before that snapshot existed, so this one goes after it.
+    private void snapshotPublished(String watermark) {
+        LOG.info("Disease data " + watermark + " published by another replica, reloading...");
+        CompletableFuture<DiseaseAggregate.Snapshot> running = inFlightRefresh.get();
+        if (running == null) {
+            refreshDiseaseData(true);
         } else {
-            ranges.add("W" + String.format("%02d", start) + "-W" + String.format("%02d", prev) + "," + totalCases);
+            running.whenComplete((snapshot, failure) -> refreshDiseaseData(true));
         }
-
-        return ranges;
     }
 
-    @Scheduled(cron = "${data.fetch.cron}", zone = "Asia/Singapore")
-    public void runScheduledDataFetch() {
-        LOG.info("Running scheduled data fetch...");
-        fetchAllLatestDiseaseData();
-        LOG.info("Running scheduled data fetch...(Finished)");
+    // Builds in the background, from a snapshot when one is current; a failed warm-up is retried by the
+    // first request
+    public void warmUpDiseaseData() {
+        diseaseSnapshotStore.onSnapshotPublished(this::snapshotPublished);
+        refreshDiseaseData(true);
     }
 }
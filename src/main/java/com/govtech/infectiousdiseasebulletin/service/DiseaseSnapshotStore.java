@@ -0,0 +1,322 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of the aggregate's weekly cases on local disk, tagged with the ingest watermark it matches.
+ * On startup the file is memory-mapped and loaded straight into the aggregate when the watermark in the database
+ * is still the same, so a restart does not have to scan the whole table.
+ * <p>
+ * Every saved snapshot is also put in the shared cache tier under its watermark and announced to the other
+ * replicas, which reload from the shared copy instead of each rebuilding from the table.
+ * <p>
+ * Layout (big-endian): magic, format, watermark (last offset, updated-at seconds and nanos), then a record per
+ * disease ('D', name) followed by one per non-empty year ('C', year, bitmask of weeks with cases, one long per
+ * set bit), an 'E' record and the CRC32 of everything before it.
+ */
+public class DiseaseSnapshotStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiseaseSnapshotStore.class);
+
+    private static final int MAGIC = 0x49444253; // "IDBS"
+    private static final int FORMAT = 1;
+
+    private static final byte DISEASE = 'D';
+    private static final byte CELL = 'C';
+    private static final byte END = 'E';
+
+    private static final String SHARED_KEY_PREFIX = "disease-aggregate:";
+
+    private final DiseaseAggregate diseaseAggregate;
+    private final SharedCacheTier sharedCacheTier;
+    private final String dataset;
+    private final Path path;
+    private final boolean enabled;
+    private final Duration sharedTtl;
+
+    // Messages this replica published, so it does not reload its own announcements
+    private final Set<String> published = ConcurrentHashMap.newKeySet();
+    private volatile boolean subscribed = false;
+
+    // Watermark and aggregate version of the last save, a run that changed nothing is not announced again
+    private String lastSaved;
+
+    public DiseaseSnapshotStore(DiseaseAggregate diseaseAggregate, SharedCacheTier sharedCacheTier, String dataset,
+                                Path path, boolean enabled, long sharedTtlMs) {
+        this.diseaseAggregate = diseaseAggregate;
+        this.sharedCacheTier = sharedCacheTier;
+        this.dataset = dataset;
+        this.path = path;
+        this.enabled = enabled;
+        this.sharedTtl = Duration.ofMillis(sharedTtlMs);
+    }
+
+    // Called with the watermark of every snapshot another replica saved
+    public void onSnapshotPublished(Consumer<String> listener) {
+        subscribed = true;
+        String prefix = dataset + "|";
+        sharedCacheTier.subscribe(message -> {
+            if (message.startsWith(prefix) && !published.remove(message)) {
+                listener.accept(message.substring(prefix.length(), message.lastIndexOf('#')));
+            }
+        });
+    }
+
+    // Writes the current aggregate under the given watermark to disk and to the shared tier, then tells the
+    // other replicas. The file is replaced atomically, so a reader sees either the previous snapshot or the new one.
+    public synchronized void save(IngestionState watermark) {
+        if (watermark == null || !diseaseAggregate.isLoaded()) {
+            return;
+        }
+        String saved = key(watermark) + "/" + diseaseAggregate.versionedSnapshot().version();
+        if (saved.equals(lastSaved)) {
+            return;
+        }
+        byte[] body;
+        try {
+            body = encode(watermark);
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("Error occurred while encoding disease data snapshot: " + e.getMessage());
+            return;
+        }
+        boolean written = !enabled || writeFile(body, watermark);
+        try {
+            String key = key(watermark);
+            sharedCacheTier.put(SHARED_KEY_PREFIX + dataset + "|" + key, body, sharedTtl);
+            // Unique per save, so an explicit rebuild under an unchanged watermark still reaches every replica
+            String message = dataset + "|" + key + "#" + UUID.randomUUID();
+            if (subscribed) {
+                published.add(message);
+            }
+            sharedCacheTier.publish(message);
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while sharing disease data snapshot: " + e.getMessage());
+            return;
+        }
+        // Only once both copies are stored, so a failed write is retried by the next save of the same version
+        if (written) {
+            lastSaved = saved;
+        }
+    }
+
+    private boolean writeFile(byte[] body, IngestionState watermark) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, body);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            LOG.info("Saved disease data snapshot (" + body.length + " bytes) at offset " + watermark.getLastOffset());
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("Error occurred while saving disease data snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Loads the snapshot into the aggregate when it matches the current watermark. The watermark is read again
+    // afterwards: a page committed meanwhile was not merged into the aggregate, so the snapshot no longer counts.
+    public boolean restore(Supplier<IngestionState> watermark) {
+        IngestionState before = watermark.get();
+        if (before == null) {
+            return false;
+        }
+
+        long startNanos = System.nanoTime();
+        String source = "disk";
+        if (!restoreFile(before)) {
+            source = "shared cache";
+            if (!restoreShared(before)) {
+                return false;
+            }
+        }
+
+        if (!sameWatermark(before, watermark.get())) {
+            LOG.info("Disease data changed while the snapshot was restored, rebuilding instead.");
+            return false;
+        }
+        LOG.info("Restored disease data snapshot from " + source + " at offset " + before.getLastOffset() + " in " +
+                (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        return true;
+    }
+
+    private boolean restoreFile(IngestionState watermark) {
+        if (!enabled) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return restore(buffer, watermark, "disk");
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            LOG.error("Error occurred while reading disease data snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean restoreShared(IngestionState watermark) {
+        try {
+            Optional<byte[]> shared = sharedCacheTier.get(SHARED_KEY_PREFIX + dataset + "|" + key(watermark));
+            if (shared.isEmpty() || !restore(ByteBuffer.wrap(shared.get()), watermark, "shared cache")) {
+                return false;
+            }
+            // Kept on disk as well, so the next restart of this replica does not depend on the shared tier
+            if (enabled) {
+                writeFile(shared.get(), watermark);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while reading shared disease data snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean restore(ByteBuffer buffer, IngestionState watermark, String source) {
+        if (!isValid(buffer)) {
+            LOG.info("Ignoring disease data snapshot on " + source + ": unreadable or written by another format.");
+            return false;
+        }
+        if (!matches(buffer, watermark)) {
+            LOG.info("Ignoring disease data snapshot on " + source + ": it does not match the ingest watermark.");
+            return false;
+        }
+        try {
+            diseaseAggregate.restore(visitor -> decode(buffer, visitor), key(watermark));
+            return true;
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred while restoring disease data snapshot from " + source + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Identifies a data version across replicas, DiseaseAggregate names its versions after it
+    static String key(IngestionState watermark) {
+        return watermark.getLastOffset() + "@" + watermark.getUpdatedAt();
+    }
+
+    private byte[] encode(IngestionState watermark) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeLong(watermark.getLastOffset() == null ? -1 : watermark.getLastOffset());
+        out.writeLong(watermark.getUpdatedAt() == null ? 0 : watermark.getUpdatedAt().getEpochSecond());
+        out.writeInt(watermark.getUpdatedAt() == null ? 0 : watermark.getUpdatedAt().getNano());
+
+        String[] current = new String[1];
+        diseaseAggregate.forEachCell((disease, year, weeks) -> {
+            long mask = 0;
+            for (int i = 0; i < weeks.length; i++) {
+                if (weeks[i] > 0) {
+                    mask |= 1L << i;
+                }
+            }
+            if (mask == 0) {
+                return;
+            }
+            try {
+                if (!disease.equals(current[0])) {
+                    byte[] name = disease.getBytes(StandardCharsets.UTF_8);
+                    out.writeByte(DISEASE);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    current[0] = disease;
+                }
+                out.writeByte(CELL);
+                out.writeInt(year);
+                out.writeLong(mask);
+                for (int i = 0; i < weeks.length; i++) {
+                    if (weeks[i] > 0) {
+                        out.writeLong(weeks[i]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.writeByte(END);
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static boolean isValid(ByteBuffer buffer) {
+        int length = buffer.limit();
+        if (length < 4 + 4 + 8 + 8 + 4 + 1 + 8 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, length - 8));
+        return crc.getValue() == buffer.getLong(length - 8);
+    }
+
+    private static boolean matches(ByteBuffer buffer, IngestionState watermark) {
+        return watermark.getLastOffset() != null && watermark.getUpdatedAt() != null
+                && buffer.getLong(8) == watermark.getLastOffset()
+                && buffer.getLong(16) == watermark.getUpdatedAt().getEpochSecond()
+                && buffer.getInt(24) == watermark.getUpdatedAt().getNano();
+    }
+
+    private static void decode(ByteBuffer buffer, DiseaseAggregate.CellVisitor visitor) {
+        ByteBuffer in = buffer.duplicate().position(28);
+        long[] weeks = new long[DiseaseAggregate.WEEKS_PER_YEAR];
+        String disease = null;
+        while (true) {
+            byte type = in.get();
+            if (type == END) {
+                return;
+            } else if (type == DISEASE) {
+                byte[] name = new byte[in.getInt()];
+                in.get(name);
+                disease = new String(name, StandardCharsets.UTF_8);
+            } else if (type == CELL && disease != null) {
+                int year = in.getInt();
+                long mask = in.getLong();
+                for (int i = 0; i < weeks.length; i++) {
+                    weeks[i] = (mask & (1L << i)) != 0 ? in.getLong() : 0;
+                }
+                visitor.visit(disease, year, weeks);
+            } else {
+                throw new IllegalStateException("Corrupt disease data snapshot at byte " + (in.position() - 1));
+            }
+        }
+    }
+
+    private static boolean sameWatermark(IngestionState before, IngestionState after) {
+        return after != null && Objects.equals(before.getLastOffset(), after.getLastOffset())
+                && Objects.equals(before.getUpdatedAt(), after.getUpdatedAt());
+    }
+}
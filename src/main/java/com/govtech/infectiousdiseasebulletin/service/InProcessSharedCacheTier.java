@@ -0,0 +1,48 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Shared tier for a single node, and the stand-in for tests: a map in this JVM, and published messages are
+ * delivered synchronously to every subscriber. Several stores wired to one instance behave like replicas.
+ */
+public class InProcessSharedCacheTier implements SharedCacheTier {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Optional<byte[]> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAtNanos() - System.nanoTime() <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAtNanos() - now <= 0);
+        entries.put(key, new Entry(value, now + ttl.toNanos()));
+    }
+
+    @Override
+    public void publish(String message) {
+        subscribers.forEach(subscriber -> subscriber.accept(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    private record Entry(byte[] value, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
+import com.govtech.infectiousdiseasebulletin.repository.IngestionPageRepository;
+import com.govtech.infectiousdiseasebulletin.repository.IngestionStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Resume point of the ingest per upstream resource. Checkpoints must be written inside the transaction that
+ * writes the page, so a page and its checkpoint are either both committed or both rolled back.
+ * <p>
+ * Every replica runs the same schedule, so an ingest first takes the resource's lock: a PostgreSQL session
+ * advisory lock held on a connection of its own for the whole run. A replica that dies releases it with its
+ * connection.
+ */
+@Component
+public class IngestionCheckpoints {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionCheckpoints.class);
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext(?))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext(?))";
+
+    private final IngestionStateRepository ingestionStateRepository;
+    private final IngestionPageRepository ingestionPageRepository;
+    private final DataSource dataSource;
+
+    @Autowired
+    public IngestionCheckpoints(IngestionStateRepository ingestionStateRepository,
+                                IngestionPageRepository ingestionPageRepository, DataSource dataSource) {
+        this.ingestionStateRepository = ingestionStateRepository;
+        this.ingestionPageRepository = ingestionPageRepository;
+        this.dataSource = dataSource;
+    }
+
+    // Empty when another replica, or another run on this one, holds the lock of the resource
+    public Optional<Lock> tryLock(String resourceId) {
+        String key = "ingest|" + resourceId;
+        Connection connection = null;
+        try {
+            // Never the connection of a surrounding transaction, the lock must outlive every transaction of the run
+            connection = dataSource.getConnection();
+            if (execute(connection, TRY_LOCK_SQL, key)) {
+                Connection held = connection;
+                return Optional.of(() -> unlock(held, key));
+            }
+            connection.close();
+            return Optional.empty();
+        } catch (SQLException e) {
+            close(connection);
+            throw new IllegalStateException("Error occurred while locking the ingest of " + resourceId + ": " + e.getMessage(), e);
+        }
+    }
+
+    // A connection that could not be unlocked is aborted, its session and the lock end with it
+    private void unlock(Connection connection, String key) {
+        try {
+            execute(connection, UNLOCK_SQL, key);
+        } catch (SQLException e) {
+            LOG.error("Error occurred while releasing the ingest lock: " + e.getMessage());
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException abortFailure) {
+                LOG.error("Error occurred while aborting the ingest lock connection: " + abortFailure.getMessage());
+            }
+        } finally {
+            close(connection);
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.error("Error occurred while closing the ingest lock connection: " + e.getMessage());
+        }
+    }
+
+    private static boolean execute(Connection connection, String sql, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    public Optional<IngestionState> find(String resourceId) {
+        return ingestionStateRepository.findById(resourceId);
+    }
+
+    // Returns the new watermark. Truncated to what the database keeps, so it reads back unchanged.
+    public IngestionState pageCommitted(String resourceId, long offset, long total, Checksum checksum) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+        Long previousChecksum = ingestionPageRepository.upsert(resourceId, offset, checksum.records(), checksum.value(), now);
+        if (previousChecksum != null && previousChecksum != checksum.value()) {
+            LOG.info("Upstream page at offset " + offset + " changed since it was last ingested.");
+        }
+
+        IngestionState state = new IngestionState();
+        state.setResourceId(resourceId);
+        state.setLastOffset(offset + checksum.records());
+        state.setUpstreamTotal(total);
+        state.setUpdatedAt(now);
+        ingestionStateRepository.upsert(resourceId, state.getLastOffset(), total, now);
+        return state;
+    }
+
+    /**
+     * Held ingest lock of one resource, released on close.
+     */
+    public interface Lock extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Running CRC32 and count of the records of one page, fed while the page is written.
+     */
+    public static class Checksum implements Consumer<DiseaseCase> {
+
+        private final CRC32 crc = new CRC32();
+        private int records = 0;
+
+        @Override
+        public void accept(DiseaseCase diseaseCase) {
+            String line = diseaseCase.id() + "|" + diseaseCase.disease() + "|" + diseaseCase.epiYear() + "|" +
+                    diseaseCase.epiWeek() + "|" + diseaseCase.numberOfCases() + "\n";
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+            records++;
+        }
+
+        public int records() {
+            return records;
+        }
+
+        public long value() {
+            return crc.getValue();
+        }
+    }
+}
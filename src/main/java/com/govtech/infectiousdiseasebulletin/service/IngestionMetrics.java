@@ -0,0 +1,152 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for the ingestion and query paths, plus the progress of the current data fetch.
+ * <p>
+ * Page fetch covers the upstream call including decoding of the DTO; with streaming ingestion the records are
+ * decoded while they are written, so decoding is part of the page commit instead.
+ * <p>
+ * One instance per dataset, every meter is tagged with the dataset name.
+ */
+public class IngestionMetrics {
+
+    private static final String CACHE_NAME = "diseaseData";
+
+    private final Timer pageFetch;
+    private final Timer pageCommit;
+    private final Counter recordsIngested;
+    private final Counter pagesCompleted;
+    private final Counter fetchErrors;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer rebuildSuccess;
+    private final Timer rebuildFailure;
+
+    private volatile boolean running = false;
+    private volatile Long currentOffset;
+    private final AtomicLong runPages = new AtomicLong();
+    private final AtomicLong runRecords = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+    private volatile Instant lastErrorAt;
+
+    public IngestionMetrics(MeterRegistry registry, String dataset) {
+        this.pageFetch = Timer.builder("disease.ingestion.page.fetch")
+                .description("Upstream datastore_search call per page")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .tag("dataset", dataset)
+                .register(registry);
+        this.pageCommit = Timer.builder("disease.ingestion.page.commit")
+                .description("Writing and committing one page")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .tag("dataset", dataset)
+                .register(registry);
+        this.recordsIngested = Counter.builder("disease.ingestion.records")
+                .description("Records written to the table")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.pagesCompleted = Counter.builder("disease.ingestion.pages")
+                .description("Pages fetched and committed")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.fetchErrors = Counter.builder("disease.ingestion.errors")
+                .description("Data fetches that stopped on an error")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.cacheHits = Counter.builder("disease.cache.requests")
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.cacheMisses = Counter.builder("disease.cache.requests")
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.rebuildSuccess = Timer.builder("disease.cache.rebuild")
+                .tag("cache", CACHE_NAME).tag("outcome", "success")
+                .tag("dataset", dataset)
+                .register(registry);
+        this.rebuildFailure = Timer.builder("disease.cache.rebuild")
+                .tag("cache", CACHE_NAME).tag("outcome", "failure")
+                .tag("dataset", dataset)
+                .register(registry);
+
+        Gauge.builder("disease.ingestion.running", this, metrics -> metrics.running ? 1 : 0)
+                .tag("dataset", dataset)
+                .register(registry);
+        Gauge.builder("disease.ingestion.offset", this, metrics -> metrics.currentOffset == null ? 0 : metrics.currentOffset)
+                .tag("dataset", dataset)
+                .register(registry);
+    }
+
+    public Timer pageFetch() {
+        return pageFetch;
+    }
+
+    public Timer pageCommit() {
+        return pageCommit;
+    }
+
+    public void runStarted(long offset) {
+        runPages.set(0);
+        runRecords.set(0);
+        currentOffset = offset;
+        startedAt = Instant.now();
+        finishedAt = null;
+        running = true;
+    }
+
+    public void runFinished() {
+        finishedAt = Instant.now();
+        running = false;
+    }
+
+    // Called once a page is committed, with the offset the next page starts at
+    public void pageCompleted(int records, long nextOffset) {
+        pagesCompleted.increment();
+        recordsIngested.increment(records);
+        runPages.incrementAndGet();
+        runRecords.addAndGet(records);
+        currentOffset = nextOffset;
+    }
+
+    public void error(String message) {
+        fetchErrors.increment();
+        lastError = message;
+        lastErrorAt = Instant.now();
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void rebuilt(long startNanos, boolean success) {
+        (success ? rebuildSuccess : rebuildFailure).record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    public IngestionStatus status() {
+        Instant started = startedAt;
+        Instant finished = finishedAt;
+        double recordsPerSecond = 0;
+        if (started != null) {
+            long millis = Duration.between(started, finished == null ? Instant.now() : finished).toMillis();
+            recordsPerSecond = millis == 0 ? 0 : runRecords.get() * 1000.0 / millis;
+        }
+        return new IngestionStatus(running, currentOffset, runPages.get(), runRecords.get(), recordsPerSecond,
+                started, finished, lastError, lastErrorAt);
+    }
+}
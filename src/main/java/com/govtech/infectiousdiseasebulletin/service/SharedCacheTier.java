@@ -0,0 +1,21 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Cache tier shared by every replica, with a broadcast channel so one replica can tell the others to reload.
+ * Values are opaque bytes and keys carry the data version, so an entry is never updated in place.
+ */
+public interface SharedCacheTier {
+
+    Optional<byte[]> get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    // Delivered to the subscribers of every replica, including the one that published it
+    void publish(String message);
+
+    void subscribe(Consumer<String> subscriber);
+}
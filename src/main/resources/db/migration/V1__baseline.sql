@@ -0,0 +1,74 @@
+-- Schema as it was kept by spring.jpa.hibernate.ddl-auto=update. Every statement is idempotent, so a database
+-- created before migrations existed is adopted as it is (spring.flyway.baseline-on-migrate) and an empty one gets
+-- the same tables.
+
+CREATE TABLE IF NOT EXISTS disease_records (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    disease_id bigint,
+    epi_week varchar(255),
+    epi_year varchar(255),
+    disease varchar(255),
+    number_of_cases bigint
+);
+
+-- Rows written before datasets existed belong to the default dataset
+ALTER TABLE disease_records ADD COLUMN IF NOT EXISTS dataset varchar(64) NOT NULL DEFAULT 'default';
+ALTER TABLE disease_records DROP CONSTRAINT IF EXISTS uk_disease_records_disease_id;
+DROP INDEX IF EXISTS idx_disease_records_disease_year_week;
+DROP INDEX IF EXISTS idx_disease_records_year_week;
+
+CREATE TABLE IF NOT EXISTS disease_rollups (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    dataset varchar(64) NOT NULL DEFAULT 'default',
+    disease varchar(255),
+    epi_year integer,
+    granularity varchar(16) CHECK (granularity IN ('WEEK', 'PERIOD', 'QUARTER', 'YEAR')),
+    bucket integer,
+    total_cases bigint,
+    weeks_with_cases integer
+);
+
+ALTER TABLE disease_rollups ADD COLUMN IF NOT EXISTS dataset varchar(64) NOT NULL DEFAULT 'default';
+ALTER TABLE disease_rollups DROP CONSTRAINT IF EXISTS uk_disease_rollups_bucket;
+DROP INDEX IF EXISTS idx_disease_rollups_granularity_year;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_disease_rollups_dataset_bucket') THEN
+        ALTER TABLE disease_rollups ADD CONSTRAINT uk_disease_rollups_dataset_bucket
+            UNIQUE (dataset, disease, epi_year, granularity, bucket);
+    END IF;
+END
+$$;
+
+CREATE INDEX IF NOT EXISTS idx_disease_rollups_dataset_granularity_year ON disease_rollups (dataset, granularity, epi_year);
+
+CREATE TABLE IF NOT EXISTS ingestion_state (
+    resource_id varchar(255) PRIMARY KEY,
+    last_offset bigint,
+    upstream_total bigint,
+    updated_at timestamp(6) with time zone
+);
+
+CREATE TABLE IF NOT EXISTS ingestion_pages (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    resource_id varchar(255),
+    page_offset bigint,
+    record_count integer,
+    checksum bigint,
+    committed_at timestamp(6) with time zone
+);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_ingestion_pages_resource_offset') THEN
+        ALTER TABLE ingestion_pages ADD CONSTRAINT uk_ingestion_pages_resource_offset UNIQUE (resource_id, page_offset);
+    END IF;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS shared_cache (
+    cache_key varchar(255) PRIMARY KEY,
+    payload bytea NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL
+);
@@ -0,0 +1,72 @@
+-- disease_records moves to integer epi_year/epi_week columns and is range-partitioned by epi_year, one partition
+-- per year. Queries and rollup refreshes that filter on the year only read the partitions of those years, and an
+-- old year can be detached or compacted on its own. Records without an epi week are stored with year and week 0
+-- and, like any year without a partition yet, land in the default partition.
+
+CREATE TABLE disease_records_by_year (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    dataset varchar(64) NOT NULL DEFAULT 'default',
+    disease_id bigint NOT NULL,
+    epi_year integer NOT NULL,
+    epi_week integer NOT NULL,
+    disease varchar(255),
+    number_of_cases bigint,
+    PRIMARY KEY (id, epi_year)
+) PARTITION BY RANGE (epi_year);
+
+CREATE TABLE disease_records_default PARTITION OF disease_records_by_year DEFAULT;
+
+-- Adds the partition of one year. Rows of that year already in the default partition are moved into it first,
+-- otherwise attaching the partition would fail.
+CREATE FUNCTION create_disease_records_partition(parent regclass, year integer) RETURNS void AS $$
+DECLARE
+    partition text := 'disease_records_y' || year;
+BEGIN
+    -- Replicas may start at the same time
+    PERFORM pg_advisory_xact_lock(hashtext('create_disease_records_partition'));
+    IF to_regclass(partition) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE %s INCLUDING DEFAULTS)', partition, parent);
+    EXECUTE format('WITH moved AS (DELETE FROM disease_records_default WHERE epi_year = %s RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved', year, partition);
+    EXECUTE format('ALTER TABLE %s ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)', parent, partition, year, year + 1);
+END
+$$ LANGUAGE plpgsql;
+
+SELECT create_disease_records_partition('disease_records_by_year', year)
+FROM (
+    SELECT DISTINCT CAST(epi_year AS integer) AS year FROM disease_records
+    WHERE epi_year ~ '^[0-9]{4}$' AND epi_week ~ '^W[0-9]{1,2}$'
+    UNION SELECT CAST(EXTRACT(YEAR FROM CURRENT_DATE) AS integer)
+) years
+ORDER BY year;
+
+-- "2022" and "W01" become 2022 and 1. The latest row wins should a disease_id have been stored twice before
+-- the unique key existed.
+INSERT INTO disease_records_by_year (id, dataset, disease_id, epi_year, epi_week, disease, number_of_cases)
+SELECT DISTINCT ON (dataset, disease_id) id, dataset, disease_id,
+    CASE WHEN epi_year ~ '^[0-9]{4}$' AND epi_week ~ '^W[0-9]{1,2}$' THEN CAST(epi_year AS integer) ELSE 0 END,
+    CASE WHEN epi_year ~ '^[0-9]{4}$' AND epi_week ~ '^W[0-9]{1,2}$' THEN CAST(substring(epi_week FROM 2) AS integer) ELSE 0 END,
+    disease, number_of_cases
+FROM disease_records
+WHERE disease_id IS NOT NULL
+ORDER BY dataset, disease_id, id DESC;
+
+SELECT setval(pg_get_serial_sequence('disease_records_by_year', 'id'), COALESCE(MAX(id), 0) + 1, false)
+FROM disease_records_by_year;
+
+DROP TABLE disease_records;
+ALTER TABLE disease_records_by_year RENAME TO disease_records;
+ALTER TABLE disease_records RENAME CONSTRAINT disease_records_by_year_pkey TO disease_records_pkey;
+
+-- A unique key on a partitioned table has to include the partition key, so (dataset, disease_id) is kept unique
+-- by the writers: a record that moves to another year is deleted from its old partition before the upsert.
+-- The key also serves reads of whole years (the bulletin scan, unfiltered queries by year).
+ALTER TABLE disease_records ADD CONSTRAINT uk_disease_records_dataset_year_disease_id UNIQUE (dataset, epi_year, disease_id);
+
+-- Filtered queries of one disease and the rollup refresh of touched (disease, year) cells
+CREATE INDEX idx_disease_records_dataset_disease_year_week ON disease_records (dataset, disease, epi_year, epi_week);
+
+-- Lookups by upstream _id: existing rows of a page, records changing year and the ingest's highest id
+CREATE INDEX idx_disease_records_dataset_disease_id ON disease_records (dataset, disease_id);
@@ -0,0 +1,9 @@
+-- Since disease_records is partitioned by epi_year, the database can only enforce uniqueness of
+-- (dataset, epi_year, disease_id). That (dataset, disease_id) is unique across years is kept by the application:
+-- every write of a dataset's records first takes the transaction advisory lock of the dataset, and a record that
+-- moves to another year is deleted from its old partition before it is written to the new one.
+
+COMMENT ON CONSTRAINT uk_disease_records_dataset_year_disease_id ON disease_records IS
+    'Unique per year only. (dataset, disease_id) is kept unique across years by the application, which writes '
+    'a dataset''s records under the dataset''s advisory lock and deletes a record from its old year before it '
+    'moves.';
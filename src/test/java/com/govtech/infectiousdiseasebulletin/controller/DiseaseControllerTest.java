@@ -0,0 +1,242 @@
+package com.govtech.infectiousdiseasebulletin.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.data.BulletinCursor;
+import com.govtech.infectiousdiseasebulletin.data.BulletinPage;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
+import com.govtech.infectiousdiseasebulletin.data.RollupRow;
+import com.govtech.infectiousdiseasebulletin.model.RollupGranularity;
+import com.govtech.infectiousdiseasebulletin.service.BulletinUpdates;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseAggregate;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseBulletinRenderer;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseDatasets;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseRollupService;
+import com.govtech.infectiousdiseasebulletin.service.DiseaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DiseaseControllerTest {
+
+    @Mock
+    private DiseaseDatasets diseaseDatasets;
+
+    @Mock
+    private DiseaseService diseaseService;
+
+    @Mock
+    private DiseaseService weeklyService;
+
+    @Mock
+    private DiseaseRollupService diseaseRollupService;
+
+    @Mock
+    private BulletinUpdates bulletinUpdates;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        DiseaseBulletinRenderer renderer = new DiseaseBulletinRenderer(new ObjectMapper());
+        lenient().when(diseaseDatasets.find(null)).thenReturn(Optional.of(diseaseService));
+        lenient().when(diseaseService.getDataset())
+                .thenReturn(new DiseaseDataset(DiseaseDataset.DEFAULT_NAME, "some-resource-id", "-"));
+        mockMvc = MockMvcBuilders.standaloneSetup(new DiseaseController(diseaseDatasets, renderer, diseaseRollupService, bulletinUpdates)).build();
+    }
+
+    @Test
+    public void testGetDisease_etagAndNotModified() throws Exception {
+        // Given
+        when(diseaseService.getProcessedDiseaseSnapshot()).thenReturn(
+                new DiseaseAggregate.Snapshot("abc-1", Map.of("COVID-19", Map.of("2022", List.of("W01-W02,250")))));
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/get"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-1\""))
+                .andExpect(content().json("{\"COVID-19\":{\"2022\":[\"W01-W02,250\"]}}"));
+
+        mockMvc.perform(get("/api/disease/get").header(HttpHeaders.IF_NONE_MATCH, "\"abc-1\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testGetDisease_gzip() throws Exception {
+        // Given
+        when(diseaseService.getProcessedDiseaseSnapshot()).thenReturn(
+                new DiseaseAggregate.Snapshot("abc-2", Map.of("HFMD", Map.of("2023", List.of("W05,3")))));
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/disease/get").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-2-gz\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"HFMD\":{\"2023\":[\"W05,3\"]}}", new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        mockMvc.perform(get("/api/disease/get").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-2\""));
+        // The plain ETag does not validate the gzipped representation
+        mockMvc.perform(get("/api/disease/get").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testAcceptsGzip_qValues() {
+        assertTrue(DiseaseController.acceptsGzip("gzip, deflate, br"));
+        assertTrue(DiseaseController.acceptsGzip("deflate;q=1.0, gzip;q=0.5"));
+        assertTrue(DiseaseController.acceptsGzip("*"));
+        assertFalse(DiseaseController.acceptsGzip("gzip;q=0"));
+        assertFalse(DiseaseController.acceptsGzip("gzip;q=0.000, *;q=1"));
+        assertFalse(DiseaseController.acceptsGzip("identity"));
+        assertFalse(DiseaseController.acceptsGzip(null));
+    }
+
+    @Test
+    public void testGetDisease_invalidWeek() throws Exception {
+        mockMvc.perform(get("/api/disease/get").param("fromWeek", "60"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetIngestionStatus() throws Exception {
+        // Given
+        when(diseaseService.getIngestionStatus()).thenReturn(
+                new IngestionStatus(true, 30000L, 3, 30000, 1500.0, Instant.now(), null, null, null));
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/ingestion-status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.running").value(true))
+                .andExpect(jsonPath("$.currentOffset").value(30000))
+                .andExpect(jsonPath("$.pagesCompleted").value(3))
+                .andExpect(jsonPath("$.lastError").isEmpty());
+    }
+
+    @Test
+    public void testGetIngestionStatus_perDataset() throws Exception {
+        // Given
+        when(diseaseDatasets.find("weekly")).thenReturn(Optional.of(weeklyService));
+        when(weeklyService.getIngestionStatus()).thenReturn(
+                new IngestionStatus(false, null, 7, 700, 50.0, Instant.now(), Instant.now(), null, null));
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/ingestion-status").param("dataset", "weekly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pagesCompleted").value(7));
+
+        mockMvc.perform(get("/api/disease/ingestion-status").param("dataset", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetRollups() throws Exception {
+        // Given
+        when(diseaseRollupService.getRollups("default", RollupGranularity.QUARTER, new DiseaseQuery("HFMD", 2023, null, null, null)))
+                .thenReturn(List.of(new RollupRow("HFMD", 2023, "QUARTER", 1, 120, 9)));
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/rollups").param("granularity", "quarter")
+                        .param("disease", "HFMD").param("fromYear", "2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucket").value(1))
+                .andExpect(jsonPath("$[0].totalCases").value(120));
+
+        mockMvc.perform(get("/api/disease/rollups").param("granularity", "fortnight"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testStreamDisease_ndjson() throws Exception {
+        // Given
+        when(diseaseService.streamBulletinRows(new DiseaseQuery(null, null, null, null, null))).thenReturn(Stream.of(
+                new BulletinRow("Dengue Fever", "2023", List.of("W01,2")),
+                new BulletinRow("HFMD", "2024", List.of("W01-W02,9"))));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/disease/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"disease\":\"Dengue Fever\",\"year\":\"2023\",\"ranges\":[\"W01,2\"]}\n"
+                                + "{\"disease\":\"HFMD\",\"year\":\"2024\",\"ranges\":[\"W01-W02,9\"]}\n"));
+    }
+
+    @Test
+    public void testSubscribe() throws Exception {
+        // Given
+        SseEmitter emitter = new SseEmitter();
+        emitter.send(SseEmitter.event().id("abc-4").name("version").data("abc-4"));
+        when(bulletinUpdates.subscribe("default")).thenReturn(emitter, (SseEmitter) null);
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/subscribe"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/event-stream"))
+                .andExpect(content().string("id:abc-4\nevent:version\ndata:abc-4\n\n"));
+
+        mockMvc.perform(get("/api/disease/subscribe"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void testGetDiseaseRows_cursor() throws Exception {
+        // Given
+        BulletinCursor cursor = new BulletinCursor("Dengue Fever", "2023");
+        when(diseaseService.getBulletinPage(new DiseaseQuery(null, null, null, null, null), cursor, 1)).thenReturn(
+                new BulletinPage("abc-3", List.of(new BulletinRow("HFMD", "2024", List.of("W01,4"))), null));
+
+        // When / Then
+        mockMvc.perform(get("/api/disease/rows").param("cursor", cursor.encode()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value("abc-3"))
+                .andExpect(jsonPath("$.rows[0].disease").value("HFMD"))
+                .andExpect(jsonPath("$.next").isEmpty());
+
+        mockMvc.perform(get("/api/disease/rows").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/disease/rows").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,93 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.govtech.infectiousdiseasebulletin.data.DatastoreSearchPage;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatastoreSearchParserTest {
+
+    private final DatastoreSearchParser parser = new DatastoreSearchParser();
+
+    @Test
+    public void testParse_emitsRecordsAndEnvelope() throws Exception {
+        // Given
+        String json = "{\"help\": \"https://data.gov.sg/api/3/action/help_show?name=datastore_search\", \"success\": true, " +
+                "\"result\": {\"resource_id\": \"abc\", \"fields\": [{\"type\": \"int4\", \"id\": \"_id\"}], " +
+                "\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2012-W01\", \"disease\": \"Campylobacter enterosis\", \"no._of_cases\": \"9\"}," +
+                "{\"_id\": 2, \"epi_week\": \"2012-W12\", \"disease\": \"Campylobacter enterosis\", \"no._of_cases\": 0}" +
+                "], \"_links\": {\"start\": \"/api/action/datastore_search\", \"next\": \"/api/action/datastore_search?offset=100\"}, " +
+                "\"total\": 20060, \"limit\": 100}}";
+        List<DiseaseCase> cases = new ArrayList<>();
+
+        // When
+        DatastoreSearchPage page = parser.parse(stream(json), cases::add);
+
+        // Then
+        assertTrue(page.success());
+        assertEquals(20060, page.total());
+        assertEquals(2, page.records());
+        assertEquals(new DiseaseCase(1L, "Campylobacter enterosis", 2012, 1, 9L), cases.get(0));
+        assertEquals(new DiseaseCase(2L, "Campylobacter enterosis", 2012, 12, 0L), cases.get(1));
+        assertSame(cases.get(0).disease(), cases.get(1).disease());
+    }
+
+    @Test
+    public void testParse_unsuccessfulResponse() throws Exception {
+        // Given
+        String json = "{\"success\": false, \"error\": {\"message\": \"Not found\"}}";
+
+        // When
+        DatastoreSearchPage page = parser.parse(stream(json), diseaseCase -> fail("No records expected"));
+
+        // Then
+        assertFalse(page.success());
+        assertEquals(0, page.records());
+    }
+
+    @Test
+    public void testParse_invalidCaseCount() {
+        // Given
+        String json = "{\"success\": true, \"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2012-W01\", \"disease\": \"Dengue Fever\", \"no._of_cases\": \"n/a\"}]}}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> parser.parse(stream(json), diseaseCase -> { }));
+    }
+
+    @Test
+    public void testParse_caseCountOutOfRange() {
+        // Given
+        String json = "{\"success\": true, \"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2012-W01\", \"disease\": \"Dengue Fever\", \"no._of_cases\": \"9223372036854775808\"}]}}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> parser.parse(stream(json), diseaseCase -> { }));
+    }
+
+    @Test
+    public void testParse_epiWeekOutOfRange() {
+        // Given
+        String yearOverflow = "{\"success\": true, \"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"4294969308-W01\", \"disease\": \"Dengue Fever\", \"no._of_cases\": \"1\"}]}}";
+        String weekOutOfRange = "{\"success\": true, \"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2012-W54\", \"disease\": \"Dengue Fever\", \"no._of_cases\": \"1\"}]}}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> parser.parse(stream(yearOverflow), diseaseCase -> { }));
+        assertThrows(JsonParseException.class, () -> parser.parse(stream(weekOutOfRange), diseaseCase -> { }));
+    }
+
+    private InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
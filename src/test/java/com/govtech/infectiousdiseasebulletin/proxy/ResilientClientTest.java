@@ -0,0 +1,206 @@
+package com.govtech.infectiousdiseasebulletin.proxy;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.hc5.ApacheHttp5Client;
+import feign.optionals.OptionalDecoder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs DiseaseProxy through the resilient client against a local stub upstream that injects failures and latency.
+ */
+public class ResilientClientTest {
+
+    private static final String PAGE = "{\"success\": true, \"result\": {\"records\": [" +
+            "{\"_id\": 1, \"epi_week\": \"2022-W01\", \"disease\": \"COVID-19\", \"no._of_cases\": \"100\"}], \"total\": 1}}";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    // Scripted responses, one per request; the stub answers 200 with PAGE once the script is used up
+    private final Deque<StubResponse> script = new ConcurrentLinkedDeque<>();
+
+    private UpstreamThrottle throttle;
+    private UpstreamCircuitBreaker circuitBreaker;
+    private DiseaseProxy diseaseProxy;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/action/datastore_search", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool()); // A slow response must not hold back the retry
+        server.start();
+
+        throttle = new UpstreamThrottle(4, 200);
+        circuitBreaker = new UpstreamCircuitBreaker(3, 60000);
+        diseaseProxy = Feign.builder()
+                .contract(new SpringMvcContract())
+                .client(new ResilientClient(new ApacheHttp5Client(), throttle, circuitBreaker))
+                .retryer(new JitteredBackoffRetryer(4, 1, 20))
+                .options(new Request.Options(Duration.ofSeconds(1), Duration.ofMillis(300), true))
+                .decoder(new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(
+                        () -> new HttpMessageConverters(new MappingJackson2HttpMessageConverter()),
+                        new StaticListableBeanFactory().getBeanProvider(HttpMessageConverterCustomizer.class)))))
+                .target(DiseaseProxy.class, "http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFetch_retriesTransientFailures() {
+        // Given
+        script.add(new StubResponse(503, 0, null));
+        script.add(new StubResponse(502, 0, null));
+
+        // When
+        Optional<DiseaseDTO> result = diseaseProxy.fetchDiseaseRecord(Map.of("offset", "0", "limit", "1"));
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().getResult().getRecords().size());
+        assertEquals(3, requests.get());
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    public void testFetch_backsOffOnRateLimitAndSlowResponses() {
+        // Given
+        script.add(new StubResponse(429, 0, "0"));
+        script.add(new StubResponse(200, 1000, null)); // longer than the read timeout
+
+        // When
+        Optional<DiseaseDTO> result = diseaseProxy.fetchDiseaseRecord(Map.of("offset", "0", "limit", "1"));
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(3, requests.get());
+        // 429 and the timeout halved the limit twice (4 -> 2 -> 1), the success at limit 1 raised it again
+        assertEquals(2, throttle.limit());
+        assertEquals(50, throttle.spacingMillis());
+    }
+
+    @Test
+    public void testStream_opensCircuitBreakerOnPersistentFailures() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            script.add(new StubResponse(500, 0, null));
+        }
+
+        // When
+        assertThrows(UpstreamUnavailableException.class,
+                () -> diseaseProxy.streamDiseaseRecord(Map.of("offset", "0", "limit", "1")));
+
+        // Then
+        assertEquals(3, requests.get()); // The fourth attempt is rejected without calling the upstream
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertThrows(UpstreamUnavailableException.class,
+                () -> diseaseProxy.fetchDiseaseRecord(Map.of("offset", "0", "limit", "1")));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testFetch_rateLimitedTrialCallClosesCircuitBreaker() {
+        // Given
+        AtomicLong now = new AtomicLong(1000);
+        circuitBreaker = new UpstreamCircuitBreaker(1, 60000, now::get);
+        // HttpClient's own retry of a 429 would hide it from the breaker
+        DiseaseProxy proxy = Feign.builder()
+                .contract(new SpringMvcContract())
+                .client(new ResilientClient(new ApacheHttp5Client(HttpClients.custom().disableAutomaticRetries().build()),
+                        throttle, circuitBreaker))
+                .retryer(Retryer.NEVER_RETRY)
+                .target(DiseaseProxy.class, "http://localhost:" + server.getAddress().getPort());
+        script.add(new StubResponse(500, 0, null));
+        script.add(new StubResponse(429, 0, null));
+        assertThrows(RetryableException.class, () -> proxy.streamDiseaseRecord(Map.of("offset", "0", "limit", "1")));
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+
+        // When
+        now.addAndGet(60000);
+        RetryableException e = assertThrows(RetryableException.class,
+                () -> proxy.streamDiseaseRecord(Map.of("offset", "0", "limit", "1")));
+
+        // Then
+        assertEquals(429, e.status());
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        proxy.streamDiseaseRecord(Map.of("offset", "0", "limit", "1")).close();
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testFetch_givesUpAfterMaxAttempts() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            script.add(new StubResponse(429, 0, null));
+        }
+
+        // When / Then
+        RetryableException e = assertThrows(RetryableException.class,
+                () -> diseaseProxy.fetchDiseaseRecord(Map.of("offset", "0", "limit", "1")));
+        assertEquals(429, e.status());
+        assertEquals(4, requests.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        StubResponse response = script.poll();
+        if (response == null) {
+            response = new StubResponse(200, 0, null);
+        }
+        try {
+            Thread.sleep(response.delayMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body = (response.status() == 200 ? PAGE : "{\"success\": false}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (response.retryAfter() != null) {
+            exchange.getResponseHeaders().add("Retry-After", response.retryAfter());
+        }
+        try {
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client gave up on a slow response
+        }
+    }
+
+    private record StubResponse(int status, long delayMillis, String retryAfter) {
+    }
+}
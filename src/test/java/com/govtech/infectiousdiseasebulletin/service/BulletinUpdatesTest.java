@@ -0,0 +1,184 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulletinUpdatesTest {
+
+    private final BulletinUpdates bulletinUpdates = new BulletinUpdates(new ObjectMapper(), 50, 60000, 60000, 10);
+
+    @AfterEach
+    public void tearDown() {
+        bulletinUpdates.destroy();
+    }
+
+    @Test
+    public void testChanges_onlyChangedEntries() {
+        // Given
+        Map<String, List<String>> unchanged = Map.of("2022", List.of("W01,1"));
+        Map<String, Map<String, List<String>>> previous = Map.of(
+                "COVID-19", unchanged,
+                "Dengue Fever", Map.of("2022", List.of("W01,2"), "2023", List.of("W05,3")),
+                "Measles", Map.of("2021", List.of("W10,1")));
+        Map<String, Map<String, List<String>>> current = Map.of(
+                "COVID-19", unchanged,
+                "Dengue Fever", Map.of("2022", List.of("W01,2"), "2024", List.of("W02,4")),
+                "HFMD", Map.of("2024", List.of("W01-W02,9")));
+
+        // When
+        Map<String, Map<String, List<String>>> changes = BulletinUpdates.changes(previous, current);
+
+        // Then
+        Map<String, List<String>> dengue = new HashMap<>();
+        dengue.put("2023", null);
+        dengue.put("2024", List.of("W02,4"));
+        Map<String, List<String>> measles = new HashMap<>();
+        measles.put("2021", null);
+        assertEquals(Map.of("Dengue Fever", dengue, "HFMD", Map.of("2024", List.of("W01-W02,9")), "Measles", measles),
+                changes);
+    }
+
+    @Test
+    public void testSubscribe_coalescesBurstIntoOneDelta() throws Exception {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        bulletinUpdates.register("default", aggregate);
+        aggregate.load(Stream.empty());
+        merge(aggregate, new DiseaseCase(1L, "Dengue Fever", 2023, 1, 10L));
+        Thread.sleep(200); // The first data after the empty load is announced as a reload
+        RecordingEmitter emitter = new RecordingEmitter();
+        bulletinUpdates.subscribe("default", emitter);
+
+        // When
+        merge(aggregate, new DiseaseCase(2L, "Dengue Fever", 2023, 2, 20L));
+        merge(aggregate, new DiseaseCase(3L, "HFMD", 2024, 1, 5L));
+        merge(aggregate, new DiseaseCase(4L, "Dengue Fever", 2023, 2, 25L));
+        Thread.sleep(300);
+
+        // Then
+        String version = aggregate.versionedSnapshot().version();
+        assertEquals(2, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:version"));
+        assertTrue(emitter.events.get(1).contains("event:delta"));
+        assertTrue(emitter.events.get(1).contains("id:" + version));
+        assertTrue(emitter.events.get(1).contains(
+                "\"changes\":{\"Dengue Fever\":{\"2023\":[\"W01-W02,35\"]},\"HFMD\":{\"2024\":[\"W01,5\"]}}"));
+    }
+
+    @Test
+    public void testSubscribe_everySubscriberGetsTheSameBytes() throws Exception {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        bulletinUpdates.register("default", aggregate);
+        aggregate.load(Stream.empty());
+        merge(aggregate, new DiseaseCase(1L, "Dengue Fever", 2023, 1, 10L));
+        Thread.sleep(200);
+        List<RecordingEmitter> emitters = List.of(new RecordingEmitter(), new RecordingEmitter(), new RecordingEmitter());
+        emitters.forEach(emitter -> bulletinUpdates.subscribe("default", emitter));
+
+        // When
+        merge(aggregate, new DiseaseCase(2L, "Dengue Fever", 2023, 2, 20L));
+        Thread.sleep(300);
+
+        // Then
+        for (RecordingEmitter emitter : emitters) {
+            assertEquals(2, emitter.events.size());
+            assertEquals(emitters.get(0).events, emitter.events);
+        }
+    }
+
+    @Test
+    public void testSubscribe_limitsSubscribers() {
+        // Given
+        bulletinUpdates.register("default", new DiseaseAggregate());
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(bulletinUpdates.subscribe("default", new RecordingEmitter()));
+        }
+
+        // When / Then
+        assertNull(bulletinUpdates.subscribe("default", new RecordingEmitter()));
+    }
+
+    @Test
+    public void testSubscribe_stalledSubscriberDoesNotBlockOthers() throws Exception {
+        // Given
+        BulletinUpdates updates = new BulletinUpdates(new ObjectMapper(), 50, 200, 60000, 2);
+        try {
+            DiseaseAggregate aggregate = new DiseaseAggregate();
+            updates.register("default", aggregate);
+            aggregate.load(Stream.empty());
+            merge(aggregate, new DiseaseCase(1L, "Dengue Fever", 2023, 1, 10L));
+            Thread.sleep(150);
+            CountDownLatch release = new CountDownLatch(1);
+            updates.subscribe("default", new StalledEmitter(release));
+            RecordingEmitter emitter = new RecordingEmitter();
+            updates.subscribe("default", emitter);
+
+            // When
+            merge(aggregate, new DiseaseCase(2L, "Dengue Fever", 2023, 2, 20L));
+            Thread.sleep(600);
+
+            // Then
+            assertTrue(emitter.events.stream().anyMatch(event -> event.contains("event:delta")));
+            // The stalled subscriber was closed at a heartbeat, which freed its slot
+            assertNotNull(updates.subscribe("default", new RecordingEmitter()));
+            release.countDown();
+        } finally {
+            updates.destroy();
+        }
+    }
+
+    private static void merge(DiseaseAggregate aggregate, DiseaseCase diseaseCase) {
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(diseaseCase);
+        aggregate.merge(delta);
+    }
+
+    // Keeps every event as its wire text instead of writing it to a response
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder.build().stream()
+                    .map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining()));
+        }
+    }
+
+    // Blocks in send like a client that stopped reading
+    private static class StalledEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+
+        private StalledEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.BulletinCursor;
+import com.govtech.infectiousdiseasebulletin.data.BulletinRow;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiseaseAggregateTest {
+
+    @Test
+    public void testGetContinuousRangesWithCases() {
+        // Given
+        long[] weeks = new long[DiseaseAggregate.WEEKS_PER_YEAR];
+        weeks[0] = 3;  // W01
+        weeks[1] = 4;  // W02
+        weeks[4] = 5;  // W05
+        weeks[51] = 1; // W52
+        weeks[52] = 2; // W53
+
+        // When
+        List<String> ranges = DiseaseAggregate.getContinuousRangesWithCases(weeks, new StringBuilder());
+
+        // Then
+        assertEquals(List.of("W01-W02,7", "W05,5", "W52-W53,3"), ranges);
+    }
+
+    @Test
+    public void testMerge_zeroCasesSplitsRangeAndDropsEmptyYears() {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(Stream.empty());
+
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(1L, "Dengue Fever", 2023, 1, 10L));
+        delta.add(new DiseaseCase(2L, "Dengue Fever", 2023, 2, 20L));
+        delta.add(new DiseaseCase(3L, "Dengue Fever", 2023, 3, 30L));
+        delta.add(new DiseaseCase(4L, "Dengue Fever", 2024, 1, 5L));
+        aggregate.merge(delta);
+
+        DiseaseAggregate.Delta correction = new DiseaseAggregate.Delta();
+        correction.add(new DiseaseCase(2L, "Dengue Fever", 2023, 2, 0L));
+        correction.add(new DiseaseCase(4L, "Dengue Fever", 2024, 1, 0L));
+
+        // When
+        aggregate.merge(correction);
+
+        // Then
+        assertEquals(List.of("W01,10", "W03,30"), aggregate.snapshot().get("Dengue Fever").get("2023"));
+        assertFalse(aggregate.snapshot().get("Dengue Fever").containsKey("2024"));
+    }
+
+    @Test
+    public void testQuery_prunesDiseaseYearsAndWeeks() {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(Stream.empty());
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(1L, "Dengue Fever", 2022, 10, 1L));
+        delta.add(new DiseaseCase(2L, "Dengue Fever", 2023, 9, 2L));
+        delta.add(new DiseaseCase(3L, "Dengue Fever", 2023, 10, 3L));
+        delta.add(new DiseaseCase(4L, "Dengue Fever", 2023, 11, 4L));
+        delta.add(new DiseaseCase(5L, "HFMD", 2023, 10, 5L));
+        aggregate.merge(delta);
+
+        // When
+        Map<String, Map<String, List<String>>> result = aggregate.query(new DiseaseQuery("Dengue Fever", 2023, null, 10, 20));
+
+        // Then
+        assertEquals(Map.of("Dengue Fever", Map.of("2023", List.of("W10-W11,7"))), result);
+        assertTrue(aggregate.query(new DiseaseQuery("Unknown", null, null, null, null)).isEmpty());
+    }
+
+    @Test
+    public void testLoad_parallelMatchesSequential() {
+        // Given
+        SplittableRandom random = new SplittableRandom(7L);
+        List<DiseaseRecord> records = new ArrayList<>();
+        for (long id = 1; id <= 20000; id++) {
+            DiseaseRecord record = new DiseaseRecord();
+            record.setDiseaseId(id);
+            record.setDisease("Disease " + random.nextInt(40));
+            record.setEpiYear(random.nextInt(2012, 2025));
+            record.setEpiWeek(random.nextInt(1, 54));
+            record.setNumberOfCases((long) random.nextInt(-1, 30));
+            records.add(record);
+        }
+        DiseaseAggregate sequential = new DiseaseAggregate();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DiseaseAggregate parallel = new DiseaseAggregate(pool);
+
+        // When
+        sequential.load(records.stream());
+        parallel.load(records.stream());
+        Map<String, Map<String, List<String>>> loaded = parallel.snapshot();
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(20001L, "Disease 0", 2030, 1, 5L));
+        parallel.merge(delta);
+        pool.shutdown();
+
+        // Then
+        Map<String, Map<String, List<String>>> expected = sequential.snapshot();
+        assertEquals(expected, loaded);
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(loaded.keySet()));
+        expected.forEach((disease, years) ->
+                assertEquals(List.copyOf(years.keySet()), List.copyOf(loaded.get(disease).keySet())));
+        assertEquals(List.of("W01,5"), parallel.snapshot().get("Disease 0").get("2030"));
+        assertSame(loaded.get("Disease 1"), parallel.snapshot().get("Disease 1")); // Unchanged diseases are shared
+    }
+
+    @Test
+    public void testRows_keysetAfterCursor() {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(Stream.empty());
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(1L, "Dengue Fever", 2022, 1, 1L));
+        delta.add(new DiseaseCase(2L, "Dengue Fever", 2023, 1, 2L));
+        delta.add(new DiseaseCase(3L, "HFMD", 2022, 1, 3L));
+        delta.add(new DiseaseCase(4L, "HFMD", 2024, 1, 4L));
+        aggregate.merge(delta);
+        DiseaseQuery all = new DiseaseQuery(null, null, null, null, null);
+
+        // When
+        List<BulletinRow> rows = aggregate.rows(aggregate.versionedSnapshot(), all,
+                new BulletinCursor("Dengue Fever", "2022")).toList();
+
+        // Then
+        assertEquals(List.of(
+                new BulletinRow("Dengue Fever", "2023", List.of("W01,2")),
+                new BulletinRow("HFMD", "2022", List.of("W01,3")),
+                new BulletinRow("HFMD", "2024", List.of("W01,4"))), rows);
+        assertEquals(List.of(new BulletinRow("HFMD", "2024", List.of("W01,4"))),
+                aggregate.rows(aggregate.versionedSnapshot(), new DiseaseQuery("HFMD", 2023, null, null, null), null).toList());
+    }
+
+    @Test
+    public void testRows_weekWindowKeepsTheVersionItWasCutFrom() {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(Stream.empty());
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(1L, "Dengue Fever", 2022, 1, 1L));
+        delta.add(new DiseaseCase(2L, "Dengue Fever", 2022, 5, 2L));
+        aggregate.merge(delta);
+        DiseaseQuery window = new DiseaseQuery(null, null, null, 1, 2);
+        DiseaseAggregate.Snapshot snapshot = aggregate.versionedSnapshot(window);
+
+        // When
+        DiseaseAggregate.Delta later = new DiseaseAggregate.Delta();
+        later.add(new DiseaseCase(3L, "Dengue Fever", 2022, 2, 7L));
+        aggregate.merge(later);
+
+        // Then
+        assertNotEquals(snapshot.version(), aggregate.versionedSnapshot().version());
+        assertEquals(List.of(new BulletinRow("Dengue Fever", "2022", List.of("W01,1"))),
+                aggregate.rows(snapshot, window, null).toList());
+    }
+
+    @Test
+    public void testVersion_followsIngestWatermark() {
+        // Given
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        DiseaseAggregate replica = new DiseaseAggregate();
+        DiseaseRecord record = new DiseaseRecord();
+        record.setDisease("Dengue Fever");
+        record.setEpiYear(2023);
+        record.setEpiWeek(1);
+        record.setNumberOfCases(10L);
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(2L, "Dengue Fever", 2023, 2, 20L));
+
+        // When
+        aggregate.load(Stream.of(record), "1@2024-01-01T00:00:00Z");
+        String loaded = aggregate.versionedSnapshot().version();
+        aggregate.merge(delta, "2@2024-01-02T00:00:00Z");
+        String merged = aggregate.versionedSnapshot().version();
+        aggregate.load(Stream.of(record), "2@2024-01-02T00:00:00Z");
+        replica.load(Stream.of(record), "2@2024-01-02T00:00:00Z");
+
+        // Then
+        assertEquals("1@2024-01-01T00:00:00Z-0", loaded);
+        assertEquals("2@2024-01-02T00:00:00Z-0", merged);
+        assertEquals("2@2024-01-02T00:00:00Z-1", aggregate.versionedSnapshot().version()); // Rebuilt at the same watermark
+        assertEquals("2@2024-01-02T00:00:00Z-0", replica.versionedSnapshot().version()); // Same across instances
+    }
+}
@@ -0,0 +1,45 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiseaseQueryCacheTest {
+
+    @Test
+    public void testGet_evictsBySizeAndAge() {
+        // Given
+        AtomicLong now = new AtomicLong();
+        DiseaseQueryCache cache = new DiseaseQueryCache(2, Duration.ofSeconds(10), now::get);
+        AtomicInteger loads = new AtomicInteger();
+        DiseaseQuery dengue = new DiseaseQuery("Dengue Fever", null, null, null, null);
+        DiseaseQuery hfmd = new DiseaseQuery("HFMD", null, null, null, null);
+        DiseaseQuery measles = new DiseaseQuery("Measles", null, null, null, null);
+
+        // When
+        cache.get("v1", dengue, () -> load(loads));
+        cache.get("v1", hfmd, () -> load(loads));
+        cache.get("v1", dengue, () -> load(loads));   // hit, HFMD is now the least recently used
+        cache.get("v1", measles, () -> load(loads));  // evicts HFMD
+        cache.get("v1", dengue, () -> load(loads));   // hit
+        cache.get("v2", dengue, () -> load(loads));   // new data version
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get("v2", dengue, () -> load(loads));   // expired
+
+        // Then
+        assertEquals(5, loads.get());
+        assertEquals(2, cache.size());
+    }
+
+    private static Map<String, Map<String, List<String>>> load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return Map.of();
+    }
+}
@@ -0,0 +1,90 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseQuery;
+import com.govtech.infectiousdiseasebulletin.data.YearlyTrend;
+import com.govtech.infectiousdiseasebulletin.model.DiseaseRollup;
+import com.govtech.infectiousdiseasebulletin.model.RollupGranularity;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordRepository;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DiseaseRollupServiceTest {
+
+    @Mock
+    private DiseaseRollupRepository diseaseRollupRepository;
+
+    @Mock
+    private DiseaseRecordRepository diseaseRecordRepository;
+
+    @Mock
+    private ExecutorService ingestExecutor;
+
+    private DiseaseRollupService diseaseRollupService;
+
+    @BeforeEach
+    public void setup() {
+        diseaseRollupService = new DiseaseRollupService(diseaseRollupRepository, diseaseRecordRepository, ingestExecutor);
+    }
+
+    @Test
+    public void testGetYearlyTrend_comparesWithPreviousYear() {
+        // Given
+        when(diseaseRollupRepository.findByDatasetAndGranularityAndDiseaseAndEpiYearBetweenOrderByEpiYearAscBucketAsc(
+                "default", RollupGranularity.YEAR, "Dengue Fever", 2020, 2023))
+                .thenReturn(List.of(year("Dengue Fever", 2020, 1000), year("Dengue Fever", 2021, 1500),
+                        year("Dengue Fever", 2023, 600)));
+
+        // When
+        List<YearlyTrend> trend = diseaseRollupService.getYearlyTrend("default", new DiseaseQuery("Dengue Fever", 2021, 2023, null, null));
+
+        // Then
+        assertEquals(List.of(
+                new YearlyTrend("Dengue Fever", 2021, 1500, 500L, 50.0),
+                new YearlyTrend("Dengue Fever", 2023, 600, null, null)), trend); // 2022 has no data
+    }
+
+    @Test
+    public void testBackfillRollups_onlyDatasetsWithoutRollups() {
+        // Given
+        when(diseaseRollupRepository.existsByDataset("default")).thenReturn(true);
+        when(diseaseRollupRepository.existsByDataset("weekly")).thenReturn(false);
+        when(diseaseRollupRepository.existsByDataset("empty")).thenReturn(false);
+        when(diseaseRecordRepository.existsByDataset("weekly")).thenReturn(true);
+        when(diseaseRecordRepository.existsByDataset("empty")).thenReturn(false);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(ingestExecutor).execute(any(Runnable.class));
+
+        // When
+        diseaseRollupService.backfillRollups(List.of("default", "weekly", "empty"));
+
+        // Then
+        verify(ingestExecutor, times(3)).execute(any(Runnable.class)); // Never on the ready event's thread
+        verify(diseaseRollupRepository, times(1)).refreshAll("weekly");
+        verify(diseaseRollupRepository, never()).refreshAll("default");
+        verify(diseaseRollupRepository, never()).refreshAll("empty");
+    }
+
+    private DiseaseRollup year(String disease, int epiYear, long totalCases) {
+        DiseaseRollup rollup = new DiseaseRollup();
+        rollup.setDisease(disease);
+        rollup.setEpiYear(epiYear);
+        rollup.setGranularity(RollupGranularity.YEAR);
+        rollup.setBucket(1);
+        rollup.setTotalCases(totalCases);
+        rollup.setWeeksWithCases(52);
+        return rollup;
+    }
+}
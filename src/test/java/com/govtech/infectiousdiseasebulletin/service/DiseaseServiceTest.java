@@ -1,37 +1,80 @@
 package com.govtech.infectiousdiseasebulletin.service;
 
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
 import com.govtech.infectiousdiseasebulletin.data.DiseaseDTO;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseDataset;
+import com.govtech.infectiousdiseasebulletin.data.DiseaseYear;
+import com.govtech.infectiousdiseasebulletin.data.IngestionStatus;
 import com.govtech.infectiousdiseasebulletin.model.DiseaseRecord;
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
 import com.govtech.infectiousdiseasebulletin.proxy.DiseaseProxy;
+import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordBulkRepository;
 import com.govtech.infectiousdiseasebulletin.repository.DiseaseRecordRepository;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class DiseaseServiceTest {
 
+    private static final DiseaseDataset DATASET = new DiseaseDataset(DiseaseDataset.DEFAULT_NAME, "some-resource-id", "-");
+
     @Mock
     private DiseaseProxy diseaseProxy;
 
     @Mock
     private DiseaseRecordRepository diseaseRecordRepository;
 
-    @InjectMocks
-    private DiseaseService diseaseService; // Inject mocks into DiseaseService
+    @Mock
+    private IngestionCheckpoints ingestionCheckpoints;
+
+    @Mock
+    private DiseaseRollupService diseaseRollupService;
+
+    @Mock
+    private DiseaseSnapshotStore diseaseSnapshotStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DiseaseService diseaseService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     public void setup() {
-        diseaseService = new DiseaseService(diseaseProxy, diseaseRecordRepository);
+        diseaseService = new DiseaseService(DATASET, diseaseProxy, diseaseRecordRepository, new DiseaseAggregate(),
+                new IngestionMetrics(meterRegistry, DATASET.name()), ingestionCheckpoints, diseaseRollupService,
+                diseaseSnapshotStore, new DiseaseQueryCache(256, 600000), transactionManager);
+        lenient().when(ingestionCheckpoints.tryLock(DATASET.resourceId())).thenReturn(Optional.of(() -> { }));
     }
 
     @Test
@@ -71,18 +114,18 @@ public class DiseaseServiceTest {
         DiseaseRecord record1 = new DiseaseRecord();
         record1.setDiseaseId(1L);
         record1.setDisease("COVID-19");
-        record1.setEpiWeek("W01");
-        record1.setEpiYear("2022");
+        record1.setEpiWeek(1);
+        record1.setEpiYear(2022);
         record1.setNumberOfCases(100L);
 
         DiseaseRecord record2 = new DiseaseRecord();
         record2.setDiseaseId(2L);
         record2.setDisease("COVID-19");
-        record2.setEpiWeek("W02");
-        record2.setEpiYear("2022");
+        record2.setEpiWeek(2);
+        record2.setEpiYear(2022);
         record2.setNumberOfCases(150L);
 
-        when(diseaseRecordRepository.streamAll()).thenReturn(Arrays.asList(record1, record2).stream());
+        when(diseaseRecordRepository.streamAll(DATASET.name())).thenReturn(Arrays.asList(record1, record2).stream());
 
         // When
         Map<String, Map<String, List<String>>> result = diseaseService.getProcessedDiseaseData();
@@ -97,10 +140,118 @@ public class DiseaseServiceTest {
     }
 
     @Test
-    public void testFetchAllLatestDiseaseData() {
+    public void testSaveDiseaseData_mergesIntoLoadedAggregate() {
+        // Given
+        DiseaseRecord record1 = new DiseaseRecord();
+        record1.setDiseaseId(1L);
+        record1.setDisease("COVID-19");
+        record1.setEpiWeek(1);
+        record1.setEpiYear(2022);
+        record1.setNumberOfCases(100L);
+
+        when(diseaseRecordRepository.streamAll(DATASET.name())).thenReturn(Collections.singletonList(record1).stream());
+        diseaseService.getProcessedDiseaseData();
+
+        DiseaseDTO.Disease week2 = new DiseaseDTO.Disease();
+        week2.setId(2L);
+        week2.setDisease("COVID-19");
+        week2.setEpiWeek("2022-W02");
+        week2.setNumberOfCases("150");
+
+        DiseaseDTO.Disease otherYear = new DiseaseDTO.Disease();
+        otherYear.setId(3L);
+        otherYear.setDisease("COVID-19");
+        otherYear.setEpiWeek("2023-W05");
+        otherYear.setNumberOfCases("20");
+
+        // When
+        diseaseService.saveDiseaseData(Arrays.asList(week2, otherYear));
+        Map<String, Map<String, List<String>>> result = diseaseService.getProcessedDiseaseData();
+
+        // Then
+        verify(diseaseRecordRepository, times(1)).streamAll(DATASET.name());
+        assertEquals(List.of("W01-W02,250"), result.get("COVID-19").get("2022"));
+        assertEquals(List.of("W05,20"), result.get("COVID-19").get("2023"));
+    }
+
+    @Test
+    public void testInvalidateDiseaseData_servesStaleDataWhileRebuilding() throws Exception {
+        // Given
+        DiseaseRecord week1 = new DiseaseRecord();
+        week1.setDiseaseId(1L);
+        week1.setDisease("COVID-19");
+        week1.setEpiWeek(1);
+        week1.setEpiYear(2022);
+        week1.setNumberOfCases(100L);
+
+        DiseaseRecord week2 = new DiseaseRecord();
+        week2.setDiseaseId(2L);
+        week2.setDisease("COVID-19");
+        week2.setEpiWeek(2);
+        week2.setEpiYear(2022);
+        week2.setNumberOfCases(150L);
+
+        CountDownLatch rebuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseRebuild = new CountDownLatch(1);
+        when(diseaseRecordRepository.streamAll(DATASET.name()))
+                .thenReturn(Stream.of(week1))
+                .thenAnswer(invocation -> {
+                    rebuildStarted.countDown();
+                    releaseRebuild.await(5, TimeUnit.SECONDS);
+                    return Stream.of(week1, week2);
+                });
+        diseaseService.getProcessedDiseaseData();
+
+        // When
+        diseaseService.invalidateDiseaseData();
+        assertTrue(rebuildStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<DiseaseAggregate.Snapshot> coalesced = diseaseService.refreshDiseaseData();
+
+        // Then
+        assertEquals(List.of("W01,100"), diseaseService.getProcessedDiseaseData().get("COVID-19").get("2022"));
+
+        releaseRebuild.countDown();
+        coalesced.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("W01-W02,250"), diseaseService.getProcessedDiseaseData().get("COVID-19").get("2022"));
+        verify(diseaseRecordRepository, times(2)).streamAll(DATASET.name());
+    }
+
+    @Test
+    public void testWarmUpDiseaseData_restoresDiskSnapshotWithoutScanning(@TempDir Path directory) throws Exception {
         // Given
-        when(diseaseRecordRepository.findMaxDiseaseId()).thenReturn(20060L);
+        IngestionState watermark = new IngestionState();
+        watermark.setLastOffset(20061L);
+        watermark.setUpdatedAt(Instant.parse("2024-05-01T01:00:00Z"));
+        when(ingestionCheckpoints.find(any())).thenReturn(Optional.of(watermark));
 
+        DiseaseAggregate saved = new DiseaseAggregate();
+        DiseaseRecord record = new DiseaseRecord();
+        record.setDisease("COVID-19");
+        record.setEpiWeek(1);
+        record.setEpiYear(2022);
+        record.setNumberOfCases(100L);
+        saved.load(Stream.of(record));
+        Path path = directory.resolve("aggregate.snapshot");
+        new DiseaseSnapshotStore(saved, new InProcessSharedCacheTier(), DATASET.name(), path, true, 60000).save(watermark);
+
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        diseaseService = new DiseaseService(DATASET, diseaseProxy, diseaseRecordRepository, aggregate,
+                new IngestionMetrics(meterRegistry, DATASET.name()), ingestionCheckpoints, diseaseRollupService,
+                new DiseaseSnapshotStore(aggregate, new InProcessSharedCacheTier(), DATASET.name(), path, true, 60000),
+                new DiseaseQueryCache(256, 600000), transactionManager);
+
+        // When
+        diseaseService.warmUpDiseaseData();
+        Map<String, Map<String, List<String>>> result = diseaseService.getProcessedDiseaseData();
+
+        // Then
+        assertEquals(List.of("W01,100"), result.get("COVID-19").get("2022"));
+        verify(diseaseRecordRepository, never()).streamAll(DATASET.name());
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData() {
+        // Given
         DiseaseDTO firstResponse = new DiseaseDTO();
         firstResponse.setSuccess(true);
         DiseaseDTO.Result firstResult = new DiseaseDTO.Result();
@@ -126,7 +277,376 @@ public class DiseaseServiceTest {
         diseaseService.fetchAllLatestDiseaseData();
 
         // Then
-        verify(diseaseRecordRepository, times(1)).findMaxDiseaseId();
+        // Without a checkpoint the run starts at offset 0, whatever _ids are already stored
+        verify(diseaseProxy, times(1)).fetchDiseaseRecord(argThat(params -> "0".equals(params.get("offset"))));
+        verify(diseaseRecordRepository, times(1)).saveAll(anyList());
+        // Before the run for a year just started, after it for the years it moved out of the default partition
+        verify(diseaseRecordRepository, times(2)).createYearPartitions();
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_recordsIngestionStatus() {
+        // Given
+        DiseaseDTO failed = new DiseaseDTO();
+        failed.setSuccess(false);
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class)))
+                .thenReturn(Optional.of(pageResponse(1L, 20000)))
+                .thenReturn(Optional.of(failed));
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        IngestionStatus status = diseaseService.getIngestionStatus();
+        assertFalse(status.running());
+        assertEquals(1L, status.currentOffset());
+        assertEquals(1L, status.pagesCompleted());
+        assertEquals(1L, status.recordsIngested());
+        assertEquals("Error: API response was not successful. Stopping the data fetch.", status.lastError());
+        assertEquals(2L, meterRegistry.get("disease.ingestion.page.fetch").timer().count());
+        assertEquals(1L, meterRegistry.get("disease.ingestion.page.commit").timer().count());
+        assertEquals(1.0, meterRegistry.get("disease.ingestion.errors").counter().count());
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_rejectsPageWithEpiWeekOutOfRange() {
+        // Given
+        DiseaseDTO page = pageResponse(1L, 1);
+        page.getResult().getRecords().get(0).setEpiWeek("2022-W60");
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class))).thenReturn(Optional.of(page));
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verify(diseaseRecordRepository, never()).saveAll(anyList());
+        verify(ingestionCheckpoints, never()).pageCommitted(any(), anyLong(), anyLong(), any());
+        assertTrue(diseaseService.getIngestionStatus().lastError().contains("2022-W60"));
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_resumesFromCheckpoint() {
+        // Given
+        IngestionState state = new IngestionState();
+        state.setResourceId(DATASET.resourceId());
+        state.setLastOffset(20060L);
+        state.setUpstreamTotal(20060L);
+        when(ingestionCheckpoints.find(DATASET.resourceId())).thenReturn(Optional.of(state));
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class))).thenReturn(Optional.of(pageResponse(20061L, 20061)));
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verify(diseaseProxy, times(1)).fetchDiseaseRecord(argThat(params -> "20060".equals(params.get("offset"))));
+        verify(ingestionCheckpoints, times(1)).pageCommitted(eq(DATASET.resourceId()), eq(20060L), eq(20061L),
+                argThat(checksum -> checksum.records() == 1));
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_skipsWhileAnotherReplicaIngests() {
+        // Given
+        when(ingestionCheckpoints.tryLock(DATASET.resourceId())).thenReturn(Optional.empty());
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verifyNoInteractions(diseaseProxy);
+        verify(ingestionCheckpoints, never()).pageCommitted(any(), anyLong(), anyLong(), any());
+        assertFalse(diseaseService.getIngestionStatus().running());
+    }
+
+    @Test
+    public void testSaveDiseaseData_updatesExistingRecord() {
+        // Given
+        DiseaseRecord existing = new DiseaseRecord();
+        existing.setId(7L);
+        existing.setDiseaseId(1L);
+        existing.setDisease("COVID-19");
+        existing.setEpiWeek(1);
+        existing.setEpiYear(2022);
+        existing.setNumberOfCases(50L);
+        when(diseaseRecordRepository.findByDatasetAndDiseaseIdIn(eq(DATASET.name()), anyCollection())).thenReturn(List.of(existing));
+
+        // When
+        diseaseService.saveDiseaseData(pageResponse(1L, 1).getResult().getRecords());
+
+        // Then
+        verify(diseaseRecordRepository).saveAll(argThat(records -> {
+            Iterator<DiseaseRecord> iterator = records.iterator();
+            DiseaseRecord saved = iterator.next();
+            return !iterator.hasNext() && saved.getId() == 7L && saved.getNumberOfCases() == 100L;
+        }));
+    }
+
+    @Test
+    public void testSaveDiseaseData_recordMovedToAnotherWeek() {
+        // Given
+        DiseaseRecord existing = new DiseaseRecord();
+        existing.setId(7L);
+        existing.setDiseaseId(1L);
+        existing.setDisease("COVID-19");
+        existing.setEpiWeek(1);
+        existing.setEpiYear(2022);
+        existing.setNumberOfCases(50L);
+        when(diseaseRecordRepository.streamAll(DATASET.name())).thenReturn(Stream.of(existing));
+        diseaseService.getProcessedDiseaseData();
+        when(diseaseRecordRepository.findByDatasetAndDiseaseIdIn(eq(DATASET.name()), anyCollection())).thenReturn(List.of(existing));
+        DiseaseDTO.Disease moved = pageResponse(1L, 1).getResult().getRecords().get(0);
+        moved.setEpiWeek("2022-W03");
+
+        // When
+        diseaseService.saveDiseaseData(List.of(moved));
+
+        // Then
+        assertEquals(List.of("W03,100"), diseaseService.getProcessedDiseaseData().get("COVID-19").get("2022"));
+    }
+
+    @Test
+    public void testSaveDiseaseData_copyWriteModeSubtractsMovedRecords() {
+        // Given
+        DiseaseRecord week1 = new DiseaseRecord();
+        week1.setDiseaseId(1L);
+        week1.setDisease("COVID-19");
+        week1.setEpiWeek(1);
+        week1.setEpiYear(2022);
+        week1.setNumberOfCases(50L);
+        when(diseaseRecordRepository.streamAll(DATASET.name())).thenReturn(Stream.of(week1));
+        diseaseService.getProcessedDiseaseData();
+        ReflectionTestUtils.setField(diseaseService, "writeMode", DiseaseService.WRITE_MODE_COPY);
+        DiseaseDTO.Disease moved = pageResponse(1L, 1).getResult().getRecords().get(0);
+        moved.setEpiWeek("2022-W03");
+        when(diseaseRecordRepository.copyUpsert(eq(DATASET.name()), any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<DiseaseCase>>getArgument(2)
+                    .accept(new DiseaseCase(1L, "COVID-19", 2022, 1, 50L));
+            return 1;
+        });
+
+        // When
+        diseaseService.saveDiseaseData(List.of(moved));
+
+        // Then
+        assertEquals(List.of("W03,100"), diseaseService.getProcessedDiseaseData().get("COVID-19").get("2022"));
+    }
+
+    @Test
+    public void testSaveDiseaseData_refreshesRollupsOfCellMovedOutOf() {
+        // Given
+        DiseaseRecord existing = new DiseaseRecord();
+        existing.setId(7L);
+        existing.setDiseaseId(1L);
+        existing.setDisease("COVID-19");
+        existing.setEpiWeek(52);
+        existing.setEpiYear(2021);
+        existing.setNumberOfCases(50L);
+        when(diseaseRecordRepository.findByDatasetAndDiseaseIdIn(eq(DATASET.name()), anyCollection())).thenReturn(List.of(existing));
+
+        // When
+        diseaseService.saveDiseaseData(pageResponse(1L, 1).getResult().getRecords());
+
+        // Then
+        verify(diseaseRollupService).refresh(DATASET.name(), Set.of(new DiseaseYear("COVID-19", 2021), new DiseaseYear("COVID-19", 2022)));
+    }
+
+    @Test
+    public void testSaveDiseaseData_refreshesTouchedRollups() {
+        // Given
+        List<DiseaseDTO.Disease> diseases = new ArrayList<>(pageResponse(1L, 1).getResult().getRecords());
+        diseases.addAll(pageResponse(2L, 1).getResult().getRecords());
+        DiseaseDTO.Disease dengue = pageResponse(3L, 1).getResult().getRecords().get(0);
+        dengue.setDisease("Dengue Fever");
+        dengue.setEpiWeek("2023-W10");
+        diseases.add(dengue);
+
+        // When
+        diseaseService.saveDiseaseData(diseases);
+
+        // Then
+        verify(diseaseRollupService).refresh(DATASET.name(), Set.of(new DiseaseYear("COVID-19", 2022), new DiseaseYear("Dengue Fever", 2023)));
+    }
+
+    @Test
+    public void testToDiseaseRecord_storesIntegerYearAndWeek() {
+        // Given
+        DiseaseDTO.Disease disease = pageResponse(1L, 1).getResult().getRecords().get(0);
+        disease.setEpiWeek("2023-W09");
+        DiseaseDTO.Disease undated = pageResponse(2L, 1).getResult().getRecords().get(0);
+        undated.setEpiWeek(null);
+
+        // When
+        DiseaseRecord record = DiseaseService.toDiseaseRecord(disease, new DiseaseRecord());
+        DiseaseRecord undatedRecord = DiseaseService.toDiseaseRecord(undated, new DiseaseRecord());
+
+        // Then
+        assertEquals(2023, record.getEpiYear());
+        assertEquals(9, record.getEpiWeek());
+        assertEquals(0, undatedRecord.getEpiYear());
+        assertEquals(0, undatedRecord.getEpiWeek());
+    }
+
+    @Test
+    public void testSaveDiseaseData_copyWriteMode() {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "writeMode", DiseaseService.WRITE_MODE_COPY);
+        List<DiseaseDTO.Disease> diseases = pageResponse(1L, 1).getResult().getRecords();
+
+        // When
+        diseaseService.saveDiseaseData(diseases);
+
+        // Then
+        verify(diseaseRecordRepository, times(1)).copyUpsert(eq(DATASET.name()), eq(diseases), any());
+        verify(diseaseRecordRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_streamingRollsBackUnsuccessfulPage() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "streamingEnabled", true);
+        String page = "{\"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2022-W01\", \"disease\": \"COVID-19\", \"no._of_cases\": \"100\"}]}, " +
+                "\"success\": false}";
+        when(diseaseProxy.streamDiseaseRecord(any(Map.class))).thenReturn(jsonResponse(page));
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(diseaseRecordRepository.copyUpsertStream(eq(DATASET.name()), any(), any())).thenAnswer(invocation -> {
+            DiseaseRecordBulkRepository.DiseaseCaseSource source = invocation.getArgument(1);
+            source.forEach(diseaseCase -> { });
+            return 1;
+        });
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        assertTrue(transaction.isRollbackOnly());
+        verify(ingestionCheckpoints, never()).pageCommitted(any(), anyLong(), anyLong(), any());
+        assertEquals("Error: API response was not successful. Stopping the data fetch.",
+                diseaseService.getIngestionStatus().lastError());
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_streaming() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "streamingEnabled", true);
+        String page = "{\"success\": true, \"result\": {\"records\": [" +
+                "{\"_id\": 1, \"epi_week\": \"2022-W01\", \"disease\": \"COVID-19\", \"no._of_cases\": \"100\"}]}}";
+        String emptyPage = "{\"success\": true, \"result\": {\"records\": []}}";
+        when(diseaseProxy.streamDiseaseRecord(any(Map.class)))
+                .thenReturn(jsonResponse(page))
+                .thenReturn(jsonResponse(emptyPage));
+        List<DiseaseCase> written = new ArrayList<>();
+        when(diseaseRecordRepository.copyUpsertStream(eq(DATASET.name()), any(), any())).thenAnswer(invocation -> {
+            DiseaseRecordBulkRepository.DiseaseCaseSource source = invocation.getArgument(1);
+            source.forEach(written::add);
+            return written.size();
+        });
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verify(diseaseProxy, times(2)).streamDiseaseRecord(any(Map.class));
+        verify(diseaseProxy, never()).fetchDiseaseRecord(any(Map.class));
+        assertEquals(List.of(new DiseaseCase(1L, "COVID-19", 2022, 1, 100L)), written);
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_pipelined() {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "pipelineEnabled", true);
+        ReflectionTestUtils.setField(diseaseService, "pageSize", 1L);
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class))).thenAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(0);
+            long offset = Long.parseLong(params.get("offset").toString());
+            return Optional.of(pageResponse(offset + 1, 3));
+        });
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verify(diseaseProxy, times(3)).fetchDiseaseRecord(any(Map.class));
+        verify(diseaseRecordRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_pipelinedOnVirtualThreads() {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "pipelineEnabled", true);
+        ReflectionTestUtils.setField(diseaseService, "virtualThreadsEnabled", true);
+        ReflectionTestUtils.setField(diseaseService, "pipelineMaxInFlight", 2);
+        ReflectionTestUtils.setField(diseaseService, "pageSize", 1L);
+        Set<Boolean> fetchedOnVirtualThread = ConcurrentHashMap.newKeySet();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class))).thenAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(0);
+            long offset = Long.parseLong(params.get("offset").toString());
+            if (offset > 0) {
+                fetchedOnVirtualThread.add(Thread.currentThread().isVirtual());
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                inFlight.decrementAndGet();
+            }
+            return Optional.of(pageResponse(offset + 1, 9));
+        });
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
+        verify(diseaseRecordRepository, times(9)).saveAll(anyList());
+        assertEquals(Set.of(true), fetchedOnVirtualThread);
+        assertTrue(maxInFlight.get() <= 2); // The 8 queued pages never exceed max-in-flight
+    }
+
+    @Test
+    public void testFetchAllLatestDiseaseData_pipelinedStopsAtFailedPage() {
+        // Given
+        ReflectionTestUtils.setField(diseaseService, "pipelineEnabled", true);
+        ReflectionTestUtils.setField(diseaseService, "pageSize", 1L);
+        when(diseaseProxy.fetchDiseaseRecord(any(Map.class))).thenAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(0);
+            long offset = Long.parseLong(params.get("offset").toString());
+            if (offset == 1L) {
+                DiseaseDTO failed = new DiseaseDTO();
+                failed.setSuccess(false);
+                return Optional.of(failed);
+            }
+            return Optional.of(pageResponse(offset + 1, 4));
+        });
+
+        // When
+        diseaseService.fetchAllLatestDiseaseData();
+
+        // Then
         verify(diseaseRecordRepository, times(1)).saveAll(anyList());
     }
+
+    private Response jsonResponse(String json) {
+        return Response.builder()
+                .status(200)
+                .request(Request.create(Request.HttpMethod.GET, "/api/action/datastore_search",
+                        Collections.emptyMap(), null, StandardCharsets.UTF_8, null))
+                .body(json, StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private DiseaseDTO pageResponse(long diseaseId, int total) {
+        DiseaseDTO.Disease disease = new DiseaseDTO.Disease();
+        disease.setId(diseaseId);
+        disease.setDisease("COVID-19");
+        disease.setEpiWeek("2022-W01");
+        disease.setNumberOfCases("100");
+
+        DiseaseDTO.Result result = new DiseaseDTO.Result();
+        result.setRecords(Collections.singletonList(disease));
+        result.setTotal(total);
+
+        DiseaseDTO response = new DiseaseDTO();
+        response.setSuccess(true);
+        response.setResult(result);
+        return response;
+    }
 }
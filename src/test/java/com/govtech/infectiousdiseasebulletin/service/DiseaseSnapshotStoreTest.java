@@ -0,0 +1,149 @@
+package com.govtech.infectiousdiseasebulletin.service;
+
+import com.govtech.infectiousdiseasebulletin.data.DiseaseCase;
+import com.govtech.infectiousdiseasebulletin.model.IngestionState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiseaseSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestore_matchingWatermark() {
+        // Given
+        Path path = directory.resolve("aggregate.snapshot");
+        IngestionState watermark = watermark(20061L, Instant.parse("2024-05-01T01:00:00.123456Z"));
+        new DiseaseSnapshotStore(loadedAggregate(), new InProcessSharedCacheTier(), "default", path, true, 60000).save(watermark);
+
+        DiseaseAggregate restored = new DiseaseAggregate();
+        DiseaseSnapshotStore store = new DiseaseSnapshotStore(restored, new InProcessSharedCacheTier(), "default", path, true, 60000);
+
+        // When / Then
+        assertFalse(store.restore(() -> watermark(20062L, watermark.getUpdatedAt())));
+        assertFalse(restored.isLoaded());
+
+        assertTrue(store.restore(() -> watermark(20061L, watermark.getUpdatedAt())));
+        assertTrue(restored.isLoaded());
+        assertEquals(List.of("W01-W02,250", "W53,7"), restored.snapshot().get("COVID-19").get("2022"));
+        assertEquals(List.of("W10,3"), restored.snapshot().get("HFMD").get("2023"));
+        assertFalse(restored.snapshot().containsKey("Measles"));
+    }
+
+    @Test
+    public void testRestore_corruptFileIsIgnored() throws IOException {
+        // Given
+        Path path = directory.resolve("aggregate.snapshot");
+        IngestionState watermark = watermark(10L, Instant.parse("2024-05-01T01:00:00Z"));
+        new DiseaseSnapshotStore(loadedAggregate(), new InProcessSharedCacheTier(), "default", path, true, 60000).save(watermark);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x5a;
+        Files.write(path, bytes);
+
+        DiseaseAggregate restored = new DiseaseAggregate();
+
+        // When
+        boolean result = new DiseaseSnapshotStore(restored, new InProcessSharedCacheTier(), "default", path, true, 60000).restore(() -> watermark);
+
+        // Then
+        assertFalse(result);
+        assertFalse(restored.isLoaded());
+    }
+
+    @Test
+    public void testSave_fansOutToOtherReplicasOfTheDatasetOncePerChange() {
+        // Given
+        SharedCacheTier shared = new InProcessSharedCacheTier();
+        IngestionState watermark = watermark(42L, Instant.parse("2024-05-01T01:00:00Z"));
+        DiseaseAggregate publisherAggregate = loadedAggregate();
+        DiseaseSnapshotStore publisher = new DiseaseSnapshotStore(publisherAggregate, shared, "default",
+                directory.resolve("a.snapshot"), false, 60000);
+        DiseaseAggregate replicaAggregate = new DiseaseAggregate();
+        DiseaseSnapshotStore replica = new DiseaseSnapshotStore(replicaAggregate, shared, "default",
+                directory.resolve("b.snapshot"), false, 60000);
+        DiseaseSnapshotStore otherDataset = new DiseaseSnapshotStore(new DiseaseAggregate(), shared, "weekly",
+                directory.resolve("c.snapshot"), false, 60000);
+
+        List<String> publisherReceived = new ArrayList<>();
+        List<String> replicaReceived = new ArrayList<>();
+        List<String> otherDatasetReceived = new ArrayList<>();
+        publisher.onSnapshotPublished(publisherReceived::add);
+        replica.onSnapshotPublished(replicaReceived::add);
+        otherDataset.onSnapshotPublished(otherDatasetReceived::add);
+
+        // When
+        publisher.save(watermark);
+        publisher.save(watermark);
+
+        // Then
+        assertEquals(List.of(DiseaseSnapshotStore.key(watermark)), replicaReceived);
+        assertTrue(publisherReceived.isEmpty());
+        assertTrue(otherDatasetReceived.isEmpty());
+        assertFalse(otherDataset.restore(() -> watermark));
+        assertTrue(replica.restore(() -> watermark));
+        assertEquals(publisherAggregate.snapshot(), replicaAggregate.snapshot());
+        assertFalse(Files.exists(directory.resolve("b.snapshot")));
+    }
+
+    @Test
+    public void testSave_retriedAfterSharedTierFailure() {
+        // Given
+        IngestionState watermark = watermark(42L, Instant.parse("2024-05-01T01:00:00Z"));
+        AtomicBoolean down = new AtomicBoolean(true);
+        SharedCacheTier shared = new InProcessSharedCacheTier() {
+            @Override
+            public void put(String key, byte[] value, Duration ttl) {
+                if (down.get()) {
+                    throw new IllegalStateException("Shared tier unavailable");
+                }
+                super.put(key, value, ttl);
+            }
+        };
+        DiseaseSnapshotStore store = new DiseaseSnapshotStore(loadedAggregate(), shared, "default",
+                directory.resolve("a.snapshot"), false, 60000);
+        DiseaseSnapshotStore replica = new DiseaseSnapshotStore(new DiseaseAggregate(), shared, "default",
+                directory.resolve("b.snapshot"), false, 60000);
+        store.save(watermark);
+        down.set(false);
+
+        // When
+        store.save(watermark);
+
+        // Then
+        assertTrue(replica.restore(() -> watermark));
+    }
+
+    private static DiseaseAggregate loadedAggregate() {
+        DiseaseAggregate aggregate = new DiseaseAggregate();
+        aggregate.load(Stream.empty());
+        DiseaseAggregate.Delta delta = new DiseaseAggregate.Delta();
+        delta.add(new DiseaseCase(1L, "COVID-19", 2022, 1, 100L));
+        delta.add(new DiseaseCase(2L, "COVID-19", 2022, 2, 150L));
+        delta.add(new DiseaseCase(3L, "COVID-19", 2022, 53, 7L));
+        delta.add(new DiseaseCase(4L, "HFMD", 2023, 10, 3L));
+        delta.add(new DiseaseCase(5L, "Measles", 2023, 1, 0L));
+        aggregate.merge(delta);
+        return aggregate;
+    }
+
+    private static IngestionState watermark(long lastOffset, Instant updatedAt) {
+        IngestionState state = new IngestionState();
+        state.setResourceId("resource");
+        state.setLastOffset(lastOffset);
+        state.setUpdatedAt(updatedAt);
+        return state;
+    }
+}